@@ -0,0 +1,91 @@
+package com.github.zhitron.codepoint_loader;
+
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByByteArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较不同解码引擎解码 UTF-8 字节数据的吞吐量。
+ * 输入分为以 ASCII 为主、混合文本和以 CJK 为主三类。
+ *
+ * @author zhitron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8DecodingBenchmark {
+    /**
+     * 输入数据的类型。
+     */
+    @Param({"ASCII", "MIXED", "CJK"})
+    public String input;
+
+    /**
+     * 使用的解码引擎。
+     */
+    @Param({"CHARSET_DECODER", "UTF8", "UTF8_CODEPOINT"})
+    public DecodingEngine engine;
+
+    /**
+     * 输入数据的 Code Point 数量。
+     */
+    @Param({"1048576"})
+    public int length;
+
+    private byte[] bytes;
+
+    private int[] codepoints;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int n = random.nextInt(100);
+            switch (input) {
+                case "ASCII":
+                    sb.appendCodePoint(random.nextInt(200) != 0 ? 'a' + n % 26 : 0x4E00 + n);
+                    break;
+                case "MIXED":
+                    sb.appendCodePoint(n < 60 ? 'a' + n % 26 : n < 90 ? 0x4E00 + n : 0x1F600 + n % 64);
+                    break;
+                default:
+                    sb.appendCodePoint(n < 10 ? ' ' : n < 90 ? 0x4E00 + n * 7 : 0x20000 + n);
+                    break;
+            }
+        }
+        bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        codepoints = new int[4096];
+    }
+
+    @Benchmark
+    public long read() throws Exception {
+        long sum = 0;
+        try (CodepointLoader loader = new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 4096, engine)) {
+            int count;
+            while ((count = loader.read(codepoints, 0, codepoints.length)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    sum += codepoints[i];
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long nextCodepoint() throws Exception {
+        long sum = 0;
+        try (CodepointLoader loader = new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 4096, engine)) {
+            while (loader.hasNextCodepoint()) {
+                sum += loader.nextCodepoint();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.zhitron.codepoint_loader;
+
+/**
+ * AdaptiveSizing 根据每次重新填充时数据源实际提供的数据量，在给定的范围内调整缓冲区的容量。
+ *
+ * <p>连续多次填满缓冲区的全部空闲区域，说明数据源能够提供大块的顺序读取，容量加倍；
+ * 连续多次只填充了不到四分之一的容量，说明数据源很小或每次只能提供少量数据，容量减半。
+ * 扩容比缩容更积极，使大的数据源尽快达到较大的读取块，同时避免在容量之间来回振荡。</p>
+ *
+ * @author zhitron
+ */
+final class AdaptiveSizing {
+    /**
+     * 触发扩容所需的连续填满次数。
+     */
+    private static final int GROW_STREAK = 4;
+
+    /**
+     * 触发缩容所需的连续稀疏填充次数。
+     */
+    private static final int SHRINK_STREAK = 16;
+
+    /**
+     * 容量的下界。
+     */
+    private final int minCapacity;
+
+    /**
+     * 容量的上界。
+     */
+    private final int maxCapacity;
+
+    /**
+     * 正数表示连续填满的次数，负数表示连续稀疏填充的次数。
+     */
+    private int streak;
+
+    /**
+     * 构造函数，创建在 [minCapacity, maxCapacity] 范围内调整容量的 AdaptiveSizing。
+     *
+     * @param minCapacity 容量的下界，必须大于 0
+     * @param maxCapacity 容量的上界，必须不小于 minCapacity
+     */
+    AdaptiveSizing(int minCapacity, int maxCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("minCapacity must be greater than 0");
+        }
+        if (maxCapacity < minCapacity) {
+            throw new IllegalArgumentException("maxCapacity must be greater than or equal to minCapacity");
+        }
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * 将容量限制在范围之内。
+     *
+     * @param capacity 当前容量
+     * @return 范围内最接近的容量
+     */
+    int clamp(int capacity) {
+        return Math.max(minCapacity, Math.min(capacity, maxCapacity));
+    }
+
+    /**
+     * 记录一次重新填充的结果，并给出下一次填充前应使用的容量。
+     *
+     * @param capacity 当前容量
+     * @param free     本次填充前的空闲空间
+     * @param loaded   本次实际填充的数据量，小于等于 0 表示数据源已经读完
+     * @return 下一次填充前应使用的容量，不需要调整时返回 capacity
+     */
+    int record(int capacity, int free, int loaded) {
+        if (loaded <= 0) {
+            return capacity;
+        }
+        if (loaded >= free) {
+            streak = Math.max(streak, 0) + 1;
+            if (streak >= GROW_STREAK && capacity < maxCapacity) {
+                streak = 0;
+                return (int) Math.min((long) capacity << 1, maxCapacity);
+            }
+        } else if (loaded <= capacity >> 2) {
+            streak = Math.min(streak, 0) - 1;
+            if (-streak >= SHRINK_STREAK && capacity > minCapacity) {
+                streak = 0;
+                return Math.max(capacity >> 1, minCapacity);
+            }
+        } else {
+            streak = 0;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.zhitron.codepoint_loader;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferPool 是一个有界的缓冲区池，供加载器复用字符缓冲区、堆字节缓冲区和直接字节缓冲区。
+ *
+ * <p>缓冲区按容量向上取整为 2 的幂划分大小等级，每种缓冲区的每个大小等级分别管理。
+ * 平台线程在每个等级上各有一个线程本地的缓存槽位，其后是一个无锁的全局空闲列表；
+ * 虚拟线程的生命周期通常很短，因此直接使用全局空闲列表。
+ * 全局空闲列表中每个等级最多保留 maxPooled 个缓冲区，超出的缓冲区直接丢弃，交由垃圾回收器处理。</p>
+ *
+ * <p>归还后的缓冲区可能立即被其他加载器使用，因此调用者在归还之后不能再访问该缓冲区。</p>
+ *
+ * @author zhitron
+ */
+public final class BufferPool {
+    /**
+     * 默认的每个大小等级在全局空闲列表中最多保留的缓冲区数量。
+     */
+    public static final int DEFAULT_MAX_POOLED = 64;
+
+    /**
+     * 参与池化的最大容量，更大的缓冲区直接分配，也不会被保留。
+     */
+    private static final int MAX_POOLED_CAPACITY = 1 << 24;
+
+    /**
+     * 大小等级的数量，等级 i 对应容量 2^i。
+     */
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_CAPACITY) + 1;
+
+    /**
+     * 字符缓冲区的种类编号。
+     */
+    private static final int CHAR = 0;
+
+    /**
+     * 堆字节缓冲区的种类编号。
+     */
+    private static final int HEAP_BYTE = 1;
+
+    /**
+     * 直接字节缓冲区的种类编号。
+     */
+    private static final int DIRECT_BYTE = 2;
+
+    /**
+     * 由 CodepointLoaderFactory 创建的加载器共享的缓冲区池。
+     */
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_POOLED);
+
+    /**
+     * 每个大小等级在全局空闲列表中最多保留的缓冲区数量。
+     */
+    private final int maxPooled;
+
+    /**
+     * 全局空闲列表，下标为种类编号乘以等级数量再加上大小等级。
+     */
+    private final Queue<Buffer>[] freeLists;
+
+    /**
+     * 全局空闲列表中当前保留的缓冲区数量，与 freeLists 一一对应。
+     */
+    private final AtomicInteger[] counts;
+
+    /**
+     * 平台线程的本地缓存，每个种类的每个大小等级一个槽位。
+     */
+    private final ThreadLocal<Buffer[]> caches = ThreadLocal.withInitial(() -> new Buffer[3 * CLASSES]);
+
+    /**
+     * 构造函数，创建一个新的缓冲区池。
+     *
+     * @param maxPooled 每个大小等级在全局空闲列表中最多保留的缓冲区数量，不能小于 0
+     */
+    public BufferPool(int maxPooled) {
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled cannot be negative");
+        }
+        this.maxPooled = maxPooled;
+        @SuppressWarnings("unchecked")
+        Queue<Buffer>[] lists = (Queue<Buffer>[]) new Queue<?>[3 * CLASSES];
+        this.freeLists = lists;
+        this.counts = new AtomicInteger[3 * CLASSES];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new ConcurrentLinkedQueue<>();
+            counts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * 获取由 CodepointLoaderFactory 创建的加载器共享的缓冲区池。
+     *
+     * @return 共享的缓冲区池
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 获取一个容量不小于 capacity 的字符缓冲区，缓冲区处于清空后的写模式。
+     *
+     * @param capacity 需要的最小容量
+     * @return 字符缓冲区
+     */
+    public CharBuffer acquireCharBuffer(int capacity) {
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass < 0) {
+            return CharBuffer.allocate(capacity);
+        }
+        CharBuffer buffer = (CharBuffer) acquire(CHAR, sizeClass);
+        return buffer != null ? buffer.clear() : CharBuffer.allocate(1 << sizeClass);
+    }
+
+    /**
+     * 获取一个容量不小于 capacity 的字节缓冲区，缓冲区处于清空后的写模式。
+     *
+     * @param capacity 需要的最小容量
+     * @param direct   是否需要直接缓冲区
+     * @return 字节缓冲区
+     */
+    public ByteBuffer acquireByteBuffer(int capacity, boolean direct) {
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass < 0) {
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer buffer = (ByteBuffer) acquire(direct ? DIRECT_BYTE : HEAP_BYTE, sizeClass);
+        if (buffer != null) {
+            return buffer.clear();
+        }
+        return direct ? ByteBuffer.allocateDirect(1 << sizeClass) : ByteBuffer.allocate(1 << sizeClass);
+    }
+
+    /**
+     * 将字符缓冲区归还到池中，之后不能再访问该缓冲区。
+     * 只接受独占整个底层数组且容量恰好为某个大小等级的堆缓冲区，其他缓冲区不是由池分配的，会被忽略。
+     *
+     * @param buffer 由 acquireCharBuffer 获取的字符缓冲区
+     */
+    public void release(CharBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.capacity()) {
+            release(CHAR, buffer);
+        }
+    }
+
+    /**
+     * 将字节缓冲区归还到池中，之后不能再访问该缓冲区。
+     * 只接受容量恰好为某个大小等级的可写缓冲区，堆缓冲区还必须独占整个底层数组，其他缓冲区不是由池分配的，会被忽略。
+     * 直接缓冲区的切片无法与池分配的缓冲区区分，调用者只能归还由 acquireByteBuffer 获取的缓冲区。
+     *
+     * @param buffer 由 acquireByteBuffer 获取的字节缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isReadOnly()) {
+            return;
+        }
+        if (buffer.isDirect()) {
+            release(DIRECT_BYTE, buffer);
+        } else if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.capacity()) {
+            release(HEAP_BYTE, buffer);
+        }
+    }
+
+    /**
+     * 依次从线程本地缓存和全局空闲列表中取出一个缓冲区。
+     *
+     * @param kind      缓冲区的种类编号
+     * @param sizeClass 大小等级
+     * @return 取出的缓冲区，没有空闲的缓冲区时返回 null
+     */
+    private Buffer acquire(int kind, int sizeClass) {
+        int index = kind * CLASSES + sizeClass;
+        if (!Thread.currentThread().isVirtual()) {
+            Buffer[] cache = caches.get();
+            Buffer buffer = cache[index];
+            if (buffer != null) {
+                cache[index] = null;
+                return buffer;
+            }
+        }
+        Buffer buffer = freeLists[index].poll();
+        if (buffer != null) {
+            counts[index].decrementAndGet();
+        }
+        return buffer;
+    }
+
+    /**
+     * 依次将缓冲区放入线程本地缓存和全局空闲列表，都已满时丢弃该缓冲区。
+     *
+     * @param kind   缓冲区的种类编号
+     * @param buffer 要归还的缓冲区
+     */
+    private void release(int kind, Buffer buffer) {
+        int capacity = buffer.capacity();
+        int sizeClass = sizeClass(capacity);
+        // 只接受容量恰好为某个大小等级的缓冲区，其他缓冲区不是由池分配的
+        if (sizeClass < 0 || 1 << sizeClass != capacity) {
+            return;
+        }
+        int index = kind * CLASSES + sizeClass;
+        if (!Thread.currentThread().isVirtual()) {
+            Buffer[] cache = caches.get();
+            if (cache[index] == null) {
+                cache[index] = buffer;
+                return;
+            }
+        }
+        if (counts[index].incrementAndGet() <= maxPooled) {
+            freeLists[index].offer(buffer);
+        } else {
+            counts[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * 计算容量对应的大小等级。
+     *
+     * @param capacity 需要的最小容量
+     * @return 大小等级，超出池化范围时返回 -1
+     */
+    private static int sizeClass(int capacity) {
+        if (capacity <= 0 || capacity > MAX_POOLED_CAPACITY) {
+            return -1;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zhitron.codepoint_loader;
+
+/**
+ * CharScanner 在字符数组中查找下一个高代理字符或分隔符，供加载器的批量读取和扫描循环使用。
+ *
+ * <p>默认实现逐个比较字符。使用 vector 配置编译时会额外编译基于 jdk.incubator.vector 的实现，
+ * 每次比较一整个向量寄存器宽度的字符；运行时只有在启动参数中加入了 --add-modules jdk.incubator.vector
+ * 才会使用该实现，否则回退到默认实现。</p>
+ *
+ * @author zhitron
+ */
+class CharScanner {
+    /**
+     * 基于 Vector API 的实现类的名称。
+     */
+    private static final String VECTOR_SCANNER = "com.github.zhitron.codepoint_loader.VectorCharScanner";
+
+    /**
+     * 当前运行环境下使用的实现。
+     */
+    static final CharScanner INSTANCE = load();
+
+    /**
+     * 查找 [from, to) 范围内第一个高代理字符。
+     *
+     * @param array 字符数组
+     * @param from  起始下标
+     * @param to    结束下标（不包含）
+     * @return 第一个高代理字符的下标，不存在时返回 to
+     */
+    int indexOfHighSurrogate(char[] array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.isHighSurrogate(array[i])) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 查找 [from, to) 范围内第一个属于分隔符集合的字符。
+     *
+     * @param array      字符数组
+     * @param from       起始下标
+     * @param to         结束下标（不包含）
+     * @param delimiters 分隔符集合，不能为空
+     * @return 第一个分隔符的下标，不存在时返回 to
+     */
+    int indexOfAny(char[] array, int from, int to, char[] delimiters) {
+        if (delimiters.length == 1) {
+            char delimiter = delimiters[0];
+            for (int i = from; i < to; i++) {
+                if (array[i] == delimiter) {
+                    return i;
+                }
+            }
+            return to;
+        }
+        for (int i = from; i < to; i++) {
+            char c = array[i];
+            for (char delimiter : delimiters) {
+                if (c == delimiter) {
+                    return i;
+                }
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 在 jdk.incubator.vector 模块可用且编译了基于 Vector API 的实现时使用该实现，否则使用默认实现。
+     *
+     * @return 当前运行环境下使用的实现
+     */
+    private static CharScanner load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (CharScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // 未使用 vector 配置编译，或模块不可读
+            }
+        }
+        return new CharScanner();
+    }
+}
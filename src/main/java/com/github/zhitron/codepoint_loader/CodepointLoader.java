@@ -1,7 +1,15 @@
 package com.github.zhitron.codepoint_loader;
 
 import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * 该类定义了用于加载 Unicode Code Point 的基本操作。
@@ -9,17 +17,136 @@ import java.util.NoSuchElementException;
  * @author zhitron
  */
 public abstract class CodepointLoader implements AutoCloseable {
+    /**
+     * 允许切分的最小剩余数据量，数据量更小时切分的开销高于并行带来的收益。
+     */
+    private static final long MIN_SPLIT_SIZE = 1024;
+
+    /**
+     * nextLine 查找的行结束符。
+     */
+    private static final char[] LINE_TERMINATORS = {'\n', '\r'};
+
     /**
      * 存储字符数据的缓冲区，用于读取 Unicode Code Point。
-     * 该缓冲区为 final 类型，确保其在对象生命周期内不可变。
+     * 从缓冲区池获取时，关闭后会被归还并替换为空缓冲区。
+     */
+    private CharBuffer charBuffer;
+
+    /**
+     * 缓冲区的大小，同时也是预览偏移量的上限。
+     */
+    private final int bufferSize;
+
+    /**
+     * 标志位，指示该加载器是否由 loadCodepoints 直接产出 Code Point。
+     * 为 true 时字符缓冲区不再使用，解码后的 Code Point 直接写入预读环形缓冲区。
+     */
+    private final boolean codepointSource;
+
+    /**
+     * 字符缓冲区的底层数组，解码时直接按下标读取，避免每个字符都经过 CharBuffer 的边界检查。
+     */
+    private char[] chars;
+
+    /**
+     * 提供字符缓冲区的缓冲区池，未使用缓冲区池时为 null。
+     */
+    private final BufferPool pool;
+
+    /**
+     * 下一个待读取字符在 chars 中的下标。
+     * 只有在重新填充时才会与 charBuffer 的 position 同步。
+     */
+    private int charPosition;
+
+    /**
+     * chars 中有效字符的上界（不包含）。
+     * 只有在重新填充时才会与 charBuffer 的 limit 同步。
+     */
+    private int charLimit;
+
+    /**
+     * 预读环形缓冲区，保存已解码但尚未被消费的 Unicode Code Point。
+     * 字符来源的加载器仅在需要预览时才会分配，容量始终为 2 的幂，以便通过位运算计算下标。
+     */
+    private int[] lookahead;
+
+    /**
+     * 预读环形缓冲区中第一个有效 Code Point 的下标。
+     */
+    private int lookaheadHead;
+
+    /**
+     * 预读环形缓冲区中有效 Code Point 的数量。
+     */
+    private int lookaheadSize;
+
+    /**
+     * 累计已消费数据的位置，按批次更新。
+     */
+    private final PositionCounter positionCounter = new PositionCounter();
+
+    /**
+     * chars 中 [countedPosition, charPosition) 范围内的字符已被消费，但尚未计入 positionCounter。
+     */
+    private int countedPosition;
+
+    /**
+     * 预读环形缓冲区中第一个已消费但尚未计入 positionCounter 的 Code Point 的下标。
+     */
+    private int countedLookahead;
+
+    /**
+     * 上一次计入位置之后预读环形缓冲区中写入的 Code Point 数量，减去 lookaheadSize 即为已消费但尚未计入的数量。
+     */
+    private int lookaheadPending;
+
+    /**
+     * 标志位，指示是否正在将字符缓冲区中的字符解码到预读环形缓冲区中。
+     * 这些字符在被消费时才计入位置，因此重新填充字符缓冲区时不应计入。
+     */
+    private boolean lookaheadFilling;
+
+    /**
+     * 尚未释放的检查点，按创建顺序排列，保存创建时的位置。
+     */
+    private PositionCounter[] marks;
+
+    /**
+     * 尚未释放的检查点数量。
+     */
+    private int markCount;
+
+    /**
+     * 回溯缓冲区，保存从最早的检查点开始已消费的 Code Point，只在存在检查点时追加数据。
+     */
+    private int[] spill;
+
+    /**
+     * 回溯缓冲区中有效 Code Point 的数量。
      */
-    private final CharBuffer charBuffer;
+    private int spillSize;
 
     /**
-     * 缓存的 Unicode Code Point，用于优化 hasNextCodepoint 和 nextCodepoint 方法。
-     * 默认值 -1 表示当前没有缓存有效的 Code Point。
+     * 字符缓冲区的自适应容量调整策略，未启用自适应模式时为 null。
      */
-    private int cachedCodePoint = -1;
+    private AdaptiveSizing charSizing;
+
+    /**
+     * 下一次重新填充前要切换到的字符缓冲区容量，为 0 时不需要切换。
+     */
+    private int pendingCharCapacity;
+
+    /**
+     * nextLine 返回的可复用字符序列，首次读取行时创建。
+     */
+    private LineView lineView;
+
+    /**
+     * 存放无法直接引用字符缓冲区的行的辅助缓冲区，例如跨越多次重新填充的长行，按需扩容。
+     */
+    private char[] lineBuffer;
 
     /**
      * 构造函数，初始化具有指定大小的字符缓冲区。
@@ -27,65 +154,188 @@ public abstract class CodepointLoader implements AutoCloseable {
      * @param bufferSize 缓冲区的大小
      */
     public CodepointLoader(int bufferSize) {
+        this(bufferSize, false);
+    }
+
+    /**
+     * 构造函数，初始化具有指定大小的缓冲区，并指定数据的产出方式。
+     *
+     * @param bufferSize      缓冲区的大小
+     * @param codepointSource 为 true 时由 loadCodepoints 直接产出 Code Point，否则由 loadCharBuffer 产出字符
+     */
+    protected CodepointLoader(int bufferSize, boolean codepointSource) {
+        this(bufferSize, codepointSource, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定大小的缓冲区，并指定数据的产出方式和提供字符缓冲区的缓冲区池。
+     *
+     * @param bufferSize      缓冲区的大小
+     * @param codepointSource 为 true 时由 loadCodepoints 直接产出 Code Point，否则由 loadCharBuffer 产出字符
+     * @param pool            提供字符缓冲区的缓冲区池，为 null 时直接分配，缓冲区在 close 时归还
+     */
+    protected CodepointLoader(int bufferSize, boolean codepointSource, BufferPool pool) {
         if (bufferSize <= 0) {
             throw new IllegalArgumentException("bufferSize must be greater than 0");
         }
-        this.charBuffer = CharBuffer.allocate(bufferSize);
+        this.bufferSize = bufferSize;
+        this.codepointSource = codepointSource;
+        this.pool = pool;
+        // 字符缓冲区至少要能容纳一个代理对，否则解码器无法写出增补平面的字符
+        int capacity = codepointSource ? 0 : Math.max(bufferSize, 2);
+        this.charBuffer = pool != null && capacity > 0 ? pool.acquireCharBuffer(capacity) : CharBuffer.allocate(capacity);
         this.charBuffer.flip();
+        this.chars = this.charBuffer.array();
     }
 
     /**
-     * 默认的关闭方法，用于释放资源或完成清理工作
+     * 默认的关闭方法，用于释放资源或完成清理工作，先调用 closeInput 关闭数据源，再调用 releaseBuffers 归还缓冲区。
      *
      * @throws Exception 如果关闭过程中发生错误，抛出此异常
      */
     @Override
     public void close() throws Exception {
+        try {
+            closeInput();
+        } finally {
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * 只关闭底层的数据源，使阻塞在读取中的其它线程返回，不归还任何缓冲区。
+     * 这些线程可能仍在向缓冲区写入数据，因此缓冲区只能在确认它们结束之后由 close 归还。
+     * 该方法可能被调用多次，默认实现不做任何事情；持有数据源的子类应覆盖该方法，并在 close 中调用它。
+     *
+     * @throws Exception 如果关闭数据源时发生错误
+     */
+    protected void closeInput() throws Exception {
+    }
+
+    /**
+     * 只关闭另一个加载器的底层数据源，不归还其缓冲区，供包装其它加载器的子类使用。
+     *
+     * @param loader 要关闭数据源的加载器，不能为 null
+     * @throws Exception 如果关闭数据源时发生错误
+     * @see #closeInput()
+     */
+    protected static void closeInput(CodepointLoader loader) throws Exception {
+        Objects.requireNonNull(loader, "The CodepointLoader cannot be null").closeInput();
+    }
+
+    /**
+     * 将来自缓冲区池的缓冲区归还，之后加载器不再产出任何数据。
+     * 覆盖 close 方法的子类必须在关闭时调用该方法，覆盖该方法时必须调用父类的实现。
+     */
+    protected void releaseBuffers() {
+        if (pool == null) {
+            return;
+        }
+        CharBuffer buffer = charBuffer;
+        charSizing = null;
+        pendingCharCapacity = 0;
+        if (buffer.capacity() > 0) {
+            charBuffer = CharBuffer.allocate(0);
+            chars = charBuffer.array();
+        }
+        clearBuffers();
+        if (buffer.capacity() > 0) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 启用自适应缓冲区模式，之后缓冲区的容量会根据每次重新填充时数据源实际提供的数据量在给定范围内调整。
+     *
+     * <p>连续填满缓冲区时容量加倍，使大的数据源逐步达到较大的顺序读取；持续只填充少量数据时容量减半，
+     * 使小的数据源保持较小的内存占用。当前容量不在范围内时，会在下一次重新填充前调整到范围之内。
+     * 调整只改变缓冲区的容量，peek 方法可以查看的最大偏移量仍由构造时的 bufferSize 决定。
+     * 直接产出 Code Point 的加载器没有字符缓冲区，该方法只影响子类的其它缓冲区。</p>
+     *
+     * @param minBufferSize 缓冲区容量的下界，必须大于 0
+     * @param maxBufferSize 缓冲区容量的上界，必须不小于 minBufferSize
+     */
+    public void enableAdaptiveBuffers(int minBufferSize, int maxBufferSize) {
+        if (minBufferSize <= 0) {
+            throw new IllegalArgumentException("minBufferSize must be greater than 0");
+        }
+        if (maxBufferSize < minBufferSize) {
+            throw new IllegalArgumentException("maxBufferSize must be greater than or equal to minBufferSize");
+        }
+        if (codepointSource) {
+            return;
+        }
+        // 字符缓冲区至少要能容纳一个代理对
+        AdaptiveSizing sizing = new AdaptiveSizing(Math.max(minBufferSize, 2), Math.max(maxBufferSize, 2));
+        charSizing = sizing;
+        int capacity = sizing.clamp(charBuffer.capacity());
+        pendingCharCapacity = capacity != charBuffer.capacity() ? capacity : 0;
+    }
+
+    /**
+     * 获取提供缓冲区的缓冲区池。
+     *
+     * @return 缓冲区池，未使用缓冲区池时为 null
+     */
+    protected final BufferPool getBufferPool() {
+        return pool;
     }
 
     /**
      * 检查是否还有下一个 Unicode Code Point 可读取。
+     * <p>
+     * 该方法不会解码字符，只在缓冲区为空时才会触发重新填充。
      *
      * @return 如果有下一个 Code Point 返回 true，否则返回 false。
      */
     public final boolean hasNextCodepoint() {
-        if (cachedCodePoint != -1) return true;
-        int codepoint = this.peekCodepoint();
-        cachedCodePoint = codepoint;
-        return codepoint != -1;
+        return lookaheadSize > 0 || charPosition < charLimit || fill();
     }
 
     /**
      * 获取下一个 Unicode Code Point，并移动读取位置。
      *
      * @return 下一个 Unicode Code Point。
+     * @throws NoSuchElementException 如果没有下一个 Code Point
      */
     public final int nextCodepoint() {
-        int result = cachedCodePoint;
-        if (result == -1) {
-            if (!this.hasNextCodepoint()) {
-                throw new NoSuchElementException("There is no next element");
+        if (lookaheadSize == 0) {
+            int position = charPosition;
+            if (position < charLimit) {
+                char c = chars[position];
+                if (!Character.isSurrogate(c)) {
+                    charPosition = position + 1;
+                    return c;
+                }
             }
-            result = cachedCodePoint;
+        } else {
+            return pollLookahead();
         }
-        cachedCodePoint = -1;
-        int value = this.popCodepoint();
-        if (value != result) {
-            throw new RuntimeException("Got the wrong value");
+        return nextCodepointSlow();
+    }
+
+    /**
+     * nextCodepoint 的慢速路径，处理预读数据、代理对以及缓冲区重新填充。
+     *
+     * @return 下一个 Unicode Code Point。
+     */
+    private int nextCodepointSlow() {
+        int codepoint = this.getCodepoint(0, true);
+        if (codepoint == -1) {
+            throw new NoSuchElementException("There is no next element");
         }
-        return result;
+        return codepoint;
     }
 
     /**
      * 检查当前对象是否为空
      * <p>
-     * 此方法通过检查peekCodepoint()方法的返回值是否为-1来判断对象是否为空
-     * 如果返回值为-1，则表示对象中没有可读取的代码点，即对象为空
+     * 此方法通过检查是否还有可读取的代码点来判断对象是否为空
      *
      * @return 如果对象为空，则返回true；否则返回false
      */
     public final boolean isEmpty() {
-        return this.peekCodepoint() == -1;
+        return !this.hasNextCodepoint();
     }
 
     /**
@@ -94,6 +344,15 @@ public abstract class CodepointLoader implements AutoCloseable {
      * @return 当前的 Unicode Code Point。
      */
     public final int peekCodepoint() {
+        if (lookaheadSize == 0) {
+            int position = charPosition;
+            if (position < charLimit) {
+                char c = chars[position];
+                if (!Character.isSurrogate(c)) {
+                    return c;
+                }
+            }
+        }
         return this.peekCodepoint(0);
     }
 
@@ -115,7 +374,19 @@ public abstract class CodepointLoader implements AutoCloseable {
      * @return int 弹出的代码点如果数据结构为空或无法弹出代码点，则返回值将反映这一点
      */
     public final int popCodepoint() {
-        return this.popCodepoint(0);
+        if (lookaheadSize == 0) {
+            int position = charPosition;
+            if (position < charLimit) {
+                char c = chars[position];
+                if (!Character.isSurrogate(c)) {
+                    charPosition = position + 1;
+                    return c;
+                }
+            }
+        } else {
+            return pollLookahead();
+        }
+        return this.getCodepoint(0, true);
     }
 
     /**
@@ -130,6 +401,376 @@ public abstract class CodepointLoader implements AutoCloseable {
         return this.getCodepoint(offset, true);
     }
 
+    /**
+     * 批量读取 Unicode Code Point 到指定数组中，并移动读取位置。
+     * <p>
+     * 该方法直接在字符缓冲区上循环解码，遇到代理对或缓冲区读完时才进入慢速路径，
+     * 会持续重新填充缓冲区，直到读满 len 个 Code Point 或数据源读完。
+     *
+     * @param dst 存放 Code Point 的目标数组
+     * @param off 目标数组中的起始下标
+     * @param len 最多读取的 Code Point 数量
+     * @return 实际读取的 Code Point 数量，若数据源已经读完则返回 -1
+     * @throws IndexOutOfBoundsException 如果 off 和 len 超出目标数组的范围
+     */
+    public final int read(int[] dst, int off, int len) {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (lookaheadSize > 0) {
+                // 先消费预读环形缓冲区中的数据
+                int mask = lookahead.length - 1;
+                while (count < len && lookaheadSize > 0) {
+                    dst[off + count++] = lookahead[lookaheadHead];
+                    lookaheadHead = (lookaheadHead + 1) & mask;
+                    lookaheadSize--;
+                }
+            } else if (charPosition < charLimit) {
+                char[] chars = this.chars;
+                int position = charPosition;
+                int limit = Math.min(charLimit, position + len - count);
+                // 先找到第一个高代理字符，之前的字符可以直接按值复制
+                int stop = CharScanner.INSTANCE.indexOfHighSurrogate(chars, position, limit);
+                int base = off + count - position;
+                for (int i = position; i < stop; i++) {
+                    dst[base + i] = chars[i];
+                }
+                count += stop - position;
+                position = stop;
+                charPosition = position;
+                if (position < limit) {
+                    // 遇到高代理字符，交给慢速路径组合代理对
+                    dst[off + count++] = decodeCodepoint();
+                }
+            } else if (codepointSource) {
+                // 直接产出 Code Point 的加载器可以跳过环形缓冲区，直接解码到目标数组中
+                int n = loadCodepointsUnchecked(dst, off + count, len - count);
+                if (n <= 0) {
+                    break;
+                }
+                int bytesPerChar = bytesPerChar();
+                countLookahead(bytesPerChar);
+                countCodepoints(dst, off + count, off + count + n, bytesPerChar);
+                count += n;
+            } else if (!loadChars()) {
+                break;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * 批量读取 Unicode Code Point 到指定的 IntBuffer 中，并移动读取位置。
+     * 读取的数量为 IntBuffer 的剩余空间，读取完成后 IntBuffer 的位置会相应前移。
+     *
+     * @param dst 存放 Code Point 的目标 IntBuffer
+     * @return 实际读取的 Code Point 数量，若数据源已经读完则返回 -1
+     */
+    public final int read(IntBuffer dst) {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (dst.hasArray()) {
+            int count = this.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            if (count > 0) {
+                dst.position(dst.position() + count);
+            }
+            return count;
+        }
+        int count = 0;
+        int codepoint;
+        while (dst.hasRemaining() && (codepoint = this.popCodepoint()) != -1) {
+            dst.put(codepoint);
+            count++;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * 对剩余的每一个 Unicode Code Point 执行指定操作，直到数据源读完。
+     * <p>
+     * 与逐个调用 nextCodepoint 相比，该方法在每次填充的整个字符缓冲区上运行同一个解码循环，
+     * 便于 JIT 将 action 内联到循环中。action 中不应再读取当前加载器。
+     *
+     * @param action 对每个 Code Point 执行的操作
+     */
+    public final void forEachCodepoint(IntConsumer action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        do {
+            while (lookaheadSize > 0) {
+                action.accept(pollLookahead());
+            }
+            // 重新填充时字符缓冲区可能被替换，每一轮都重新获取
+            char[] chars = this.chars;
+            int position = charPosition;
+            int limit = charLimit;
+            while (position < limit) {
+                int stop = CharScanner.INSTANCE.indexOfHighSurrogate(chars, position, limit);
+                while (position < stop) {
+                    action.accept(chars[position++]);
+                }
+                if (position < limit) {
+                    // 遇到高代理字符，交给慢速路径组合代理对
+                    charPosition = position;
+                    action.accept(decodeCodepoint());
+                    chars = this.chars;
+                    position = charPosition;
+                    limit = charLimit;
+                }
+            }
+            charPosition = position;
+        } while (fill());
+    }
+
+    /**
+     * 连续消费满足条件的 Unicode Code Point，遇到第一个不满足条件的 Code Point 时停止，
+     * 该 Code Point 不会被消费。predicate 中不应再读取当前加载器。
+     *
+     * @param predicate 判断 Code Point 是否需要消费的条件
+     * @return 实际消费的 Code Point 数量
+     */
+    public final long scanWhile(IntPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate cannot be null");
+        long count = 0;
+        do {
+            while (lookaheadSize > 0) {
+                if (!predicate.test(lookahead[lookaheadHead])) {
+                    return count;
+                }
+                pollLookahead();
+                count++;
+            }
+            char[] chars = this.chars;
+            int position = charPosition;
+            int limit = charLimit;
+            while (position < limit) {
+                char c = chars[position];
+                if (Character.isHighSurrogate(c)) {
+                    // 遇到高代理字符，先预览完整的 Code Point 再决定是否消费
+                    charPosition = position;
+                    if (!predicate.test(this.peekCodepoint(0))) {
+                        return count;
+                    }
+                    pollLookahead();
+                    count++;
+                    chars = this.chars;
+                    position = charPosition;
+                    limit = charLimit;
+                } else if (predicate.test(c)) {
+                    position++;
+                    count++;
+                } else {
+                    charPosition = position;
+                    return count;
+                }
+            }
+            charPosition = position;
+        } while (fill());
+        return count;
+    }
+
+    /**
+     * 连续消费 Unicode Code Point，遇到第一个属于分隔符集合的字符时停止，该分隔符不会被消费。
+     *
+     * <p>分隔符只能是基本多文种平面中的非代理字符，因此可以直接在字符缓冲区上按字符比较，
+     * 不需要先组合代理对；使用 vector 配置编译并启用 jdk.incubator.vector 模块时按向量批量比较。</p>
+     *
+     * @param delimiters 分隔符集合，不能为空
+     * @return 实际消费的 Code Point 数量
+     * @throws IllegalArgumentException 如果分隔符集合为空或含有代理字符
+     */
+    public final long scanUntil(char... delimiters) {
+        Objects.requireNonNull(delimiters, "delimiters cannot be null");
+        if (delimiters.length == 0) {
+            throw new IllegalArgumentException("delimiters must not be empty");
+        }
+        for (char delimiter : delimiters) {
+            if (Character.isSurrogate(delimiter)) {
+                throw new IllegalArgumentException("delimiters must not contain surrogate characters");
+            }
+        }
+        long count = 0;
+        while (true) {
+            while (lookaheadSize > 0) {
+                int codepoint = lookahead[lookaheadHead];
+                for (char delimiter : delimiters) {
+                    if (codepoint == delimiter) {
+                        return count;
+                    }
+                }
+                pollLookahead();
+                count++;
+            }
+            int position = charPosition;
+            int limit = charLimit;
+            if (position == limit) {
+                if (!fill()) {
+                    return count;
+                }
+                continue;
+            }
+            int stop = CharScanner.INSTANCE.indexOfAny(chars, position, limit, delimiters);
+            boolean found = stop < limit;
+            if (!found && Character.isHighSurrogate(chars[limit - 1])) {
+                // 缓冲区末尾的高代理字符可能与下一段数据中的低代理字符组成代理对，交给慢速路径组合
+                stop = limit - 1;
+            }
+            count += Character.codePointCount(chars, position, stop - position);
+            charPosition = stop;
+            if (found) {
+                return count;
+            }
+            if (stop < limit) {
+                decodeCodepoint();
+                count++;
+            }
+        }
+    }
+
+    /**
+     * 读取下一行，行以 '\n'、"\r\n" 或 '\r' 结束，返回的内容不包含行结束符。
+     *
+     * <p>行完整地位于字符缓冲区中时，返回的字符序列直接引用字符缓冲区，不会复制数据；
+     * 跨越多次重新填充的长行会被复制到按需扩容的辅助缓冲区中。返回的字符序列会被之后的每次读取复用，
+     * 其内容只在下一次读取当前加载器之前有效，需要保留时应调用 toString。</p>
+     *
+     * @return 下一行的内容，若数据源已经读完则返回 null
+     */
+    public final CharSequence nextLine() {
+        LineView view = lineView;
+        if (view == null) {
+            view = lineView = new LineView();
+            ensureLineBuffer(0);
+        }
+        int length = 0;
+        boolean read = false;
+        // 预读环形缓冲区中的数据和直接产出 Code Point 的数据源逐个处理
+        while (lookaheadSize > 0 || codepointSource) {
+            if (lookaheadSize == 0 && !fill()) {
+                return read ? view.set(lineBuffer, 0, length) : null;
+            }
+            read = true;
+            int codepoint = pollLookahead();
+            if (codepoint == '\n' || codepoint == '\r') {
+                if (codepoint == '\r' && peekCodepoint() == '\n') {
+                    nextCodepoint();
+                }
+                return view.set(lineBuffer, 0, length);
+            }
+            ensureLineBuffer(length + 2);
+            length += Character.toChars(codepoint, lineBuffer, length);
+        }
+        while (true) {
+            int position = charPosition;
+            int limit = charLimit;
+            if (position == limit) {
+                if (!loadChars()) {
+                    return read ? view.set(lineBuffer, 0, length) : null;
+                }
+                continue;
+            }
+            read = true;
+            char[] chars = this.chars;
+            int stop = CharScanner.INSTANCE.indexOfAny(chars, position, limit, LINE_TERMINATORS);
+            if (stop == limit) {
+                // 行没有在当前缓冲区中结束，复制到辅助缓冲区后重新填充
+                length = appendLine(chars, position, limit - position, length);
+                charPosition = limit;
+                continue;
+            }
+            charPosition = stop + 1;
+            if (chars[stop] == '\r') {
+                if (stop + 1 == limit) {
+                    // '\r' 位于缓冲区末尾，需要重新填充才能判断后面是否是 '\n'，先将行复制到辅助缓冲区
+                    length = appendLine(chars, position, stop - position, length);
+                    if (peekCodepoint() == '\n') {
+                        nextCodepoint();
+                    }
+                    return view.set(lineBuffer, 0, length);
+                }
+                if (chars[stop + 1] == '\n') {
+                    charPosition++;
+                }
+            }
+            if (length == 0) {
+                return view.set(chars, position, stop - position);
+            }
+            length = appendLine(chars, position, stop - position, length);
+            return view.set(lineBuffer, 0, length);
+        }
+    }
+
+    /**
+     * 对剩余的每一行执行指定操作，直到数据源读完。行的划分与 nextLine 相同，
+     * 传给 action 的字符序列只在本次调用期间有效，action 中不应再读取当前加载器。
+     *
+     * @param action 对每一行执行的操作
+     */
+    public final void forEachLine(Consumer<CharSequence> action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        CharSequence line;
+        while ((line = this.nextLine()) != null) {
+            action.accept(line);
+        }
+    }
+
+    /**
+     * 将字符追加到辅助缓冲区中。
+     *
+     * @param src    源字符数组
+     * @param from   起始下标
+     * @param count  字符数量
+     * @param length 辅助缓冲区中已有的字符数量
+     * @return 追加后辅助缓冲区中的字符数量
+     */
+    private int appendLine(char[] src, int from, int count, int length) {
+        ensureLineBuffer(length + count);
+        System.arraycopy(src, from, lineBuffer, length, count);
+        return length + count;
+    }
+
+    /**
+     * 确保辅助缓冲区至少能容纳指定数量的字符，容量不足时加倍扩容并保留已有的字符。
+     *
+     * @param required 需要容纳的字符数量
+     */
+    private void ensureLineBuffer(int required) {
+        char[] buffer = lineBuffer;
+        if (buffer == null) {
+            lineBuffer = new char[Math.max(required, 64)];
+        } else if (buffer.length < required) {
+            lineBuffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+
+    /**
+     * 跳过满足条件的 Unicode Code Point，并返回第一个不满足条件的 Code Point，
+     * 该 Code Point 不会被消费。
+     *
+     * @param predicate 判断 Code Point 是否需要跳过的条件
+     * @return 第一个不满足条件的 Code Point，若数据源已经读完则返回 -1
+     */
+    public final int skipWhile(IntPredicate predicate) {
+        this.scanWhile(predicate);
+        return this.peekCodepoint();
+    }
+
+    /**
+     * 返回由剩余的 Unicode Code Point 组成的 IntStream，流中的元素会从当前加载器中消费。
+     *
+     * <p>流的 Spliterator 按整个缓冲区批量遍历；对于支持切分的数据源（字符数组、字节数组和内存映射文件），
+     * 在尚未缓冲任何数据时可以切分出前一部分数据，因此可以通过 parallel() 并行处理。
+     * 切分出的加载器在遍历结束后自动关闭，当前加载器仍由调用者负责关闭。</p>
+     *
+     * @return 由剩余 Code Point 组成的 IntStream
+     */
+    public final IntStream codepoints() {
+        return StreamSupport.intStream(new CodepointSpliterator(this, false), false);
+    }
+
     /**
      * 将当前上下文转换为字符串内容
      * 此方法通过遍历当前上下文中的所有代码点，并将它们拼接成一个字符串来实现
@@ -146,89 +787,652 @@ public abstract class CodepointLoader implements AutoCloseable {
         return sb.toString();
     }
 
+    /**
+     * 丢弃所有已缓冲的数据，使加载器可以切换到新的数据源继续使用，已分配的缓冲区会被保留。
+     * 子类在实现切换数据源的 reset 方法时调用，覆盖该方法时必须调用父类的实现。
+     */
+    protected void clearBuffers() {
+        charBuffer.clear().flip();
+        charPosition = 0;
+        charLimit = 0;
+        lookaheadHead = 0;
+        lookaheadSize = 0;
+        positionCounter.reset();
+        countedPosition = 0;
+        countedLookahead = 0;
+        lookaheadPending = 0;
+        markCount = 0;
+        spillSize = 0;
+    }
+
+    /**
+     * 在当前读取位置创建一个检查点，之后可以通过 reset(long) 回到该位置重新读取。
+     *
+     * <p>检查点可以嵌套。存在检查点时，已消费的 Code Point 会被保存到回溯缓冲区中，
+     * 回溯缓冲区只保留从最早的检查点开始的数据，所有检查点都释放后不再增长，因此不需要预先缓冲整个数据源。
+     * 不再需要回溯时应调用 release(long) 释放检查点。存在检查点时数据源不会被切分。</p>
+     *
+     * @return 检查点的标识，即当前已消费的 Code Point 数量
+     */
+    public final long mark() {
+        countPosition(bytesPerChar());
+        if (marks == null) {
+            marks = new PositionCounter[4];
+        } else if (markCount == marks.length) {
+            marks = Arrays.copyOf(marks, markCount << 1);
+        }
+        if (markCount == 0) {
+            spillSize = 0;
+        }
+        PositionCounter mark = positionCounter.copy();
+        marks[markCount++] = mark;
+        return mark.codepoints();
+    }
+
+    /**
+     * 回到指定检查点的位置，之后会重新读取从该检查点开始已消费的 Code Point，位置也会恢复到该检查点。
+     * 该检查点仍然有效，可以再次回到该位置；在它之后创建的检查点会被释放。
+     *
+     * @param mark mark() 返回的检查点标识
+     * @throws IllegalArgumentException 如果该检查点不存在或已被释放
+     */
+    public final void reset(long mark) {
+        int index = findMark(mark);
+        countPosition(bytesPerChar());
+        int from = (int) (mark - marks[0].codepoints());
+        int n = spillSize - from;
+        if (lookahead == null || lookahead.length < lookaheadSize + n) {
+            growLookahead(lookaheadSize + n);
+        }
+        // 将检查点之后已消费的 Code Point 放回预读环形缓冲区的头部
+        int mask = lookahead.length - 1;
+        int head = (lookaheadHead - n) & mask;
+        for (int i = 0; i < n; i++) {
+            lookahead[(head + i) & mask] = spill[from + i];
+        }
+        lookaheadHead = head;
+        lookaheadSize += n;
+        countedLookahead = head;
+        lookaheadPending = lookaheadSize;
+        spillSize = from;
+        for (int i = index + 1; i < markCount; i++) {
+            marks[i] = null;
+        }
+        markCount = index + 1;
+        positionCounter.restore(marks[index]);
+    }
+
+    /**
+     * 释放指定的检查点，之后不能再回到该位置。释放最早的检查点时，回溯缓冲区中不再需要的数据会被丢弃。
+     *
+     * @param mark mark() 返回的检查点标识
+     * @throws IllegalArgumentException 如果该检查点不存在或已被释放
+     */
+    public final void release(long mark) {
+        int index = findMark(mark);
+        long spillStart = marks[0].codepoints();
+        System.arraycopy(marks, index + 1, marks, index, markCount - index - 1);
+        marks[--markCount] = null;
+        if (markCount == 0) {
+            spillSize = 0;
+        } else if (index == 0) {
+            int dropped = (int) (marks[0].codepoints() - spillStart);
+            spillSize -= dropped;
+            System.arraycopy(spill, dropped, spill, 0, spillSize);
+        }
+    }
+
+    /**
+     * 将一个 Unicode Code Point 放回加载器，下一次读取时首先返回该 Code Point。
+     *
+     * <p>放回的 Code Point 保存在预读环形缓冲区的头部，读取时不需要额外的判断。
+     * 放回的应是最近读取的 Code Point，读取位置会相应回退；回退到检查点之前时，该检查点会被释放。</p>
+     *
+     * @param codepoint 要放回的 Code Point
+     * @throws IllegalArgumentException 如果 codepoint 不是有效的 Unicode Code Point
+     * @throws IllegalStateException    如果放回的数量超过已消费的数量
+     */
+    public final void unread(int codepoint) {
+        if (!Character.isValidCodePoint(codepoint)) {
+            throw new IllegalArgumentException("codepoint must be a valid Unicode code point");
+        }
+        int head = prepareUnread(1);
+        lookahead[head] = codepoint;
+        finishUnread(lookahead, head, 1, head);
+    }
+
+    /**
+     * 将数组中的多个 Unicode Code Point 放回加载器，之后按数组中的顺序重新读取，即 cps[off] 最先被读取。
+     *
+     * @param cps 要放回的 Code Point 数组
+     * @param off 数组中的起始下标
+     * @param len 要放回的 Code Point 数量
+     * @throws IndexOutOfBoundsException 如果 off 和 len 超出数组的范围
+     * @throws IllegalArgumentException  如果数组中含有无效的 Unicode Code Point
+     * @throws IllegalStateException     如果放回的数量超过已消费的数量
+     * @see #unread(int)
+     */
+    public final void unread(int[] cps, int off, int len) {
+        Objects.checkFromIndexSize(off, len, cps.length);
+        for (int i = off; i < off + len; i++) {
+            if (!Character.isValidCodePoint(cps[i])) {
+                throw new IllegalArgumentException("codepoint must be a valid Unicode code point");
+            }
+        }
+        if (len == 0) {
+            return;
+        }
+        int head = prepareUnread(len);
+        int mask = lookahead.length - 1;
+        for (int i = 0; i < len; i++) {
+            lookahead[(head + i) & mask] = cps[off + i];
+        }
+        finishUnread(cps, off, len, head);
+    }
+
+    /**
+     * 放回 Code Point 之前计入已消费的数据，并确保预读环形缓冲区可以在头部容纳指定数量的 Code Point。
+     *
+     * @param count 要放回的 Code Point 数量
+     * @return 放回后预读环形缓冲区头部的下标
+     */
+    private int prepareUnread(int count) {
+        countPosition(bytesPerChar());
+        if (count > positionCounter.codepoints()) {
+            throw new IllegalStateException("Cannot unread more codepoints than have been consumed");
+        }
+        if (lookahead == null || lookahead.length - lookaheadSize < count) {
+            growLookahead(lookaheadSize + count);
+        }
+        return (lookaheadHead - count) & (lookahead.length - 1);
+    }
+
+    /**
+     * 将已写入预读环形缓冲区头部的 Code Point 计为未消费，回退读取位置，并丢弃回退位置之后的检查点和回溯数据。
+     *
+     * @param cps   放回的 Code Point 所在的数组
+     * @param off   数组中的起始下标
+     * @param count 放回的 Code Point 数量
+     * @param head  放回后预读环形缓冲区头部的下标
+     */
+    private void finishUnread(int[] cps, int off, int count, int head) {
+        positionCounter.uncount(cps, off, off + count, bytesPerChar());
+        lookaheadHead = head;
+        lookaheadSize += count;
+        countedLookahead = head;
+        lookaheadPending = lookaheadSize;
+        if (markCount > 0) {
+            long index = positionCounter.codepoints();
+            while (markCount > 0 && marks[markCount - 1].codepoints() > index) {
+                marks[--markCount] = null;
+            }
+            spillSize = markCount == 0 ? 0 : spillSize - count;
+        }
+    }
+
+    /**
+     * 查找指定标识对应的检查点，相同标识的检查点有多个时返回最近创建的一个。
+     *
+     * @param mark 检查点标识
+     * @return 检查点在 marks 中的下标
+     */
+    private int findMark(long mark) {
+        for (int i = markCount - 1; i >= 0; i--) {
+            if (marks[i].codepoints() == mark) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("mark " + mark + " is not a live checkpoint");
+    }
+
+    /**
+     * 返回当前读取位置的快照，包括已消费的 Code Point 数量、UTF-16 字符数量、数据源中的字节数、行号和列号。
+     *
+     * <p>消费 Code Point 时不会更新位置，位置在重新填充缓冲区时按整段数据批量累计，
+     * 调用该方法时只需要统计当前缓冲区中尚未累计的部分，因此不会影响正常读取的速度。
+     * 位置从加载器的起始位置或最近一次切换数据源时开始计算；通过 codepoints() 切分后，当前加载器不再包含切分出的数据。</p>
+     *
+     * @return 当前读取位置的快照
+     */
+    public final CodepointPosition position() {
+        int bytesPerChar = bytesPerChar();
+        countPosition(bytesPerChar);
+        return positionCounter.snapshot(bytesPerChar);
+    }
+
+    /**
+     * 返回计算字节偏移的方式，由解码字节数据的子类覆盖。
+     *
+     * @return 每个 UTF-16 字符对应的字节数，或 PositionCounter.UTF8_BYTES、PositionCounter.UNKNOWN_BYTES
+     */
+    int bytesPerChar() {
+        return PositionCounter.UNKNOWN_BYTES;
+    }
+
+    /**
+     * 按消费的顺序将已消费但尚未计入的数据计入位置：预读环形缓冲区中的数据总是先于字符缓冲区中直接消费的数据。
+     * 正在向预读环形缓冲区解码字符时不做任何处理。
+     *
+     * @param bytesPerChar 计算字节偏移的方式
+     */
+    private void countPosition(int bytesPerChar) {
+        if (!lookaheadFilling) {
+            countLookahead(bytesPerChar);
+            countChars(countedPosition, charPosition, bytesPerChar);
+            countedPosition = charPosition;
+        }
+    }
+
+    /**
+     * 将预读环形缓冲区中已消费但尚未计入的 Code Point 计入位置。
+     * 向预读环形缓冲区写入数据之前必须调用该方法，以免覆盖尚未计入的 Code Point。
+     *
+     * @param bytesPerChar 计算字节偏移的方式
+     */
+    private void countLookahead(int bytesPerChar) {
+        int consumed = lookaheadPending - lookaheadSize;
+        if (consumed > 0) {
+            int from = countedLookahead;
+            int first = Math.min(consumed, lookahead.length - from);
+            countCodepoints(lookahead, from, from + first, bytesPerChar);
+            countCodepoints(lookahead, 0, consumed - first, bytesPerChar);
+        }
+        countedLookahead = lookaheadHead;
+        lookaheadPending = lookaheadSize;
+    }
+
+    /**
+     * 将 chars 中 [from, to) 范围内已消费的字符计入位置，存在检查点时同时追加到回溯缓冲区。
+     *
+     * @param from         起始下标
+     * @param to           结束下标（不包含）
+     * @param bytesPerChar 计算字节偏移的方式
+     */
+    private void countChars(int from, int to, int bytesPerChar) {
+        if (from >= to) {
+            return;
+        }
+        positionCounter.count(chars, from, to, bytesPerChar);
+        if (markCount == 0) {
+            return;
+        }
+        ensureSpill(to - from);
+        char[] chars = this.chars;
+        int[] spill = this.spill;
+        int size = spillSize;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            int last = size > 0 ? spill[size - 1] : -1;
+            if (Character.isLowSurrogate(c) && last >= Character.MIN_HIGH_SURROGATE && last <= Character.MAX_HIGH_SURROGATE) {
+                // 与前一个高代理字符组合为一个 Code Point，前一个字符可能来自重新填充之前的另一段数据
+                spill[size - 1] = Character.toCodePoint((char) last, c);
+            } else {
+                spill[size++] = c;
+            }
+        }
+        spillSize = size;
+    }
+
+    /**
+     * 将 Code Point 数组中 [from, to) 范围内已消费的 Code Point 计入位置，存在检查点时同时追加到回溯缓冲区。
+     *
+     * @param array        Code Point 数组
+     * @param from         起始下标
+     * @param to           结束下标（不包含）
+     * @param bytesPerChar 计算字节偏移的方式
+     */
+    private void countCodepoints(int[] array, int from, int to, int bytesPerChar) {
+        if (from >= to) {
+            return;
+        }
+        positionCounter.count(array, from, to, bytesPerChar);
+        if (markCount > 0) {
+            ensureSpill(to - from);
+            System.arraycopy(array, from, spill, spillSize, to - from);
+            spillSize += to - from;
+        }
+    }
+
+    /**
+     * 确保回溯缓冲区还能追加指定数量的 Code Point，容量不足时加倍扩容。
+     *
+     * @param count 要追加的 Code Point 数量
+     */
+    private void ensureSpill(int count) {
+        int required = spillSize + count;
+        if (spill == null || spill.length < required) {
+            int capacity = Math.max(required, spill == null ? 16 : spill.length << 1);
+            spill = spill == null ? new int[capacity] : Arrays.copyOf(spill, capacity);
+        }
+    }
+
+    /**
+     * 在没有缓冲任何数据时尝试切分数据源，供 CodepointSpliterator 使用。
+     *
+     * @return 加载前一部分数据的新加载器，当前加载器继续加载剩余数据；无法切分时返回 null
+     */
+    final CodepointLoader split() {
+        if (markCount > 0 || lookaheadSize > 0 || charPosition < charLimit || estimateRemaining() < MIN_SPLIT_SIZE) {
+            return null;
+        }
+        return trySplit();
+    }
+
+    /**
+     * 估算剩余的 Unicode Code Point 数量，包括已缓冲和尚未加载的数据。
+     *
+     * @return 估算的剩余数量，无法估算时返回 Long.MAX_VALUE
+     */
+    final long estimateSize() {
+        long remaining = estimateRemaining();
+        return remaining == Long.MAX_VALUE ? remaining : remaining + lookaheadSize + (charLimit - charPosition);
+    }
+
+    /**
+     * 获取缓冲区的大小，切分数据源时新的加载器应使用相同的大小。
+     *
+     * @return 缓冲区的大小
+     */
+    protected final int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 由支持切分的子类覆盖，将尚未加载的数据切分为前后两部分。
+     *
+     * <p>调用时加载器中没有任何已缓冲的数据。实现应返回一个加载前一部分数据的新加载器，
+     * 并使当前加载器之后只加载后一部分数据；切分点必须位于 Code Point 的边界上。默认实现不支持切分。</p>
+     *
+     * @return 加载前一部分数据的新加载器，无法切分时返回 null
+     */
+    protected CodepointLoader trySplit() {
+        return null;
+    }
+
+    /**
+     * 由子类覆盖以估算尚未加载到缓冲区的 Unicode Code Point 数量，例如剩余的字符数或字节数。
+     *
+     * @return 估算的数量，无法估算时返回 Long.MAX_VALUE
+     */
+    protected long estimateRemaining() {
+        return Long.MAX_VALUE;
+    }
+
     /**
      * 根据给定参数获取指定位置的 Unicode Code Point
      * 支持预览和消费两种模式，可处理代理对等复杂字符情况
+     * <p>
+     * 预览时会把偏移量之内的 Code Point 解码到预读环形缓冲区中，之后的预览与消费都直接按下标读取，
+     * 因此对同一段数据反复调用 peekCodepoint(0..n) 只需要解码一次。
      *
      * @param value   指定相对于当前位置的偏移量
      * @param consume 是否消费字符（即是否移动位置指针）
      * @return 返回对应的 Unicode Code Point，若不存在则返回 -1
      */
     protected final int getCodepoint(final int value, final boolean consume) {
-        if (value < 0 || value >= charBuffer.capacity()) {
-            throw new IllegalArgumentException("offset out of range at [0," + charBuffer.capacity() + ")");
+        if (value < 0 || value >= bufferSize) {
+            throw new IllegalArgumentException("offset out of range at [0," + bufferSize + ")");
+        }
+        if (consume && value == 0 && lookaheadSize == 0 && !codepointSource) {
+            // 没有预读数据时直接从字符缓冲区解码，无需经过环形缓冲区
+            return decodeCodepoint();
+        }
+        int count = value + 1;
+        if (!fillLookahead(count)) {
+            if (consume) {
+                // 数据不足，消费掉剩余的全部预读数据
+                lookaheadHead = 0;
+                lookaheadSize = 0;
+            }
+            return -1;
         }
-        tag(true, consume);
-        char h, l;
-        int charCount = 0, count = 0;
+        int codepoint = lookahead[(lookaheadHead + value) & (lookahead.length - 1)];
+        if (consume) {
+            lookaheadHead = (lookaheadHead + count) & (lookahead.length - 1);
+            lookaheadSize -= count;
+        }
+        return codepoint;
+    }
+
+    /**
+     * 确保预读环形缓冲区中至少有指定数量的 Code Point。
+     *
+     * @param count 需要的 Code Point 数量
+     * @return 如果数据源中的数据足够则返回 true，否则返回 false
+     */
+    private boolean fillLookahead(int count) {
+        if (lookaheadSize >= count) {
+            return true;
+        }
+        if (lookahead == null || lookahead.length < count) {
+            growLookahead(codepointSource ? Math.max(count, bufferSize) : count);
+        }
+        if (codepointSource) {
+            while (lookaheadSize < count) {
+                if (!loadLookahead()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        countPosition(bytesPerChar());
+        int mask = lookahead.length - 1;
+        lookaheadFilling = true;
         try {
-            while (count <= value) {
-                // 判断是否有剩余字符可读
-                if (!charBuffer.hasRemaining()) {
-                    // 缓冲区无足够空间，重新填充数据
-                    tag(false, consume);
-                    charBuffer.compact();
-                    loadCharBuffer(charBuffer);
-                    charBuffer.flip();
-                    if (!consume) {
-                        charBuffer.mark();
-                    }
-                    charBuffer.position(charCount);
-                    if (!charBuffer.hasRemaining()) {
-                        return -1;
-                    }
+            while (lookaheadSize < count) {
+                int codepoint = decodeCodepoint();
+                if (codepoint == -1) {
+                    return false;
                 }
+                lookahead[(lookaheadHead + lookaheadSize) & mask] = codepoint;
+                lookaheadSize++;
+                lookaheadPending++;
+            }
+            return true;
+        } finally {
+            // 解码到预读环形缓冲区中的字符在被消费时计入位置
+            lookaheadFilling = false;
+            countedPosition = charPosition;
+        }
+    }
 
-                h = charBuffer.get();
-                charCount++;
-                // 判断是否是高代理字符
-                if (Character.isHighSurrogate(h)) {
-                    // 获取低代理字符
-                    if (!charBuffer.hasRemaining()) {
-                        tag(false, consume);
-                        charBuffer.compact();
-                        loadCharBuffer(charBuffer);
-                        charBuffer.flip();
-                        if (!consume) {
-                            charBuffer.mark();
-                        }
-                        charBuffer.position(charCount);
-                        if (!charBuffer.hasRemaining()) {
-                            throw new IllegalStateException("Incomplete surrogate pair: high surrogate without low surrogate.");
-                        }
-                    }
-                    l = charBuffer.get();
-                    charCount++;
-                    if (count == value) {
-                        return Character.toCodePoint(h, l);
-                    }
-                } else {
-                    if (count == value) {
-                        return h;
-                    }
+    /**
+     * 调用 loadCodepoints 将新的 Code Point 追加到预读环形缓冲区的空闲区域中。
+     * 预读环形缓冲区为空时，先尝试通过 exchangeCodepoints 直接换用子类已填充的数组。
+     *
+     * @return 如果追加了新的 Code Point 则返回 true，否则返回 false
+     */
+    private boolean loadLookahead() {
+        if (lookaheadSize == 0) {
+            countLookahead(bytesPerChar());
+            IntBuffer exchanged = exchangeCodepointsUnchecked(lookahead);
+            if (exchanged != null) {
+                if (!exchanged.hasRemaining()) {
+                    return false;
                 }
-                count += 1;
+                int[] array = exchanged.array();
+                if (Integer.bitCount(array.length) != 1 || array.length < bufferSize) {
+                    throw new IllegalStateException("The exchanged codepoint array must be a power of two not less than bufferSize");
+                }
+                lookahead = array;
+                lookaheadHead = exchanged.arrayOffset() + exchanged.position();
+                lookaheadSize = exchanged.remaining();
+                countedLookahead = lookaheadHead;
+                lookaheadPending = lookaheadSize;
+                return true;
             }
-            return -1;
+        }
+        if (lookahead == null || lookaheadSize == lookahead.length) {
+            growLookahead(Math.max(lookaheadSize + 1, bufferSize));
+        }
+        countLookahead(bytesPerChar());
+        int capacity = lookahead.length;
+        int tail = (lookaheadHead + lookaheadSize) & (capacity - 1);
+        // 只填充连续的空闲区域，环绕部分留给下一次调用
+        int free = tail < lookaheadHead ? lookaheadHead - tail : capacity - tail;
+        int n = loadCodepointsUnchecked(lookahead, tail, free);
+        if (n <= 0) {
+            return false;
+        }
+        lookaheadSize += n;
+        lookaheadPending += n;
+        return true;
+    }
+
+    /**
+     * 调用 loadCodepoints 并将其抛出的异常包装为运行时异常。
+     * IllegalStateException 表示数据本身的错误（例如残缺的代理对），与按字符读取时一样直接抛出。
+     *
+     * @param buffer 要填充数据的目标 int 数组
+     * @param offset 目标数组中的起始下标
+     * @param length 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果到达数据源末尾则返回 0 或负值
+     */
+    private int loadCodepointsUnchecked(int[] buffer, int offset, int length) {
+        try {
+            return loadCodepoints(buffer, offset, length);
+        } catch (IllegalStateException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Error to load char data", e);
-        } finally {
-            // 操作完成后恢复位置并根据 consume 决定是否消费字符
-            tag(false, consume);
+            throw new RuntimeException("Error to load codepoint data", e);
         }
     }
 
-    private void tag(boolean mark, boolean consume) {
+    /**
+     * 调用 exchangeCodepoints 并将其抛出的异常按 loadCodepointsUnchecked 的方式包装。
+     *
+     * @param buffer 当前的预读环形缓冲区，尚未分配时为 null
+     * @return 包装新数组中 Code Point 的缓冲区，不替换时返回 null
+     */
+    private IntBuffer exchangeCodepointsUnchecked(int[] buffer) {
         try {
-            if (!consume) {
-                if (mark) {
-                    charBuffer.mark();
-                } else {
-                    charBuffer.reset();
-                }
+            return exchangeCodepoints(buffer);
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error to load codepoint data", e);
+        }
+    }
+
+    /**
+     * 从预读环形缓冲区的头部取出一个 Code Point，调用前需确保缓冲区不为空。
+     *
+     * @return 预读环形缓冲区中的第一个 Code Point
+     */
+    private int pollLookahead() {
+        int codepoint = lookahead[lookaheadHead];
+        lookaheadHead = (lookaheadHead + 1) & (lookahead.length - 1);
+        lookaheadSize--;
+        return codepoint;
+    }
+
+    /**
+     * 在预读环形缓冲区与字符缓冲区都已读完时重新填充数据。
+     *
+     * @return 如果填充后有可读数据则返回 true，否则返回 false
+     */
+    private boolean fill() {
+        return codepointSource ? loadLookahead() : loadChars();
+    }
+
+    /**
+     * 扩容预读环形缓冲区，容量保持为 2 的幂，并将已有数据按顺序迁移到新数组头部。
+     *
+     * @param count 需要容纳的 Code Point 数量
+     */
+    private void growLookahead(int count) {
+        if (lookahead != null) {
+            countLookahead(bytesPerChar());
+        }
+        int capacity = Integer.highestOneBit(Math.max(count, 16) - 1) << 1;
+        int[] array = new int[capacity];
+        if (lookahead != null) {
+            int mask = lookahead.length - 1;
+            for (int i = 0; i < lookaheadSize; i++) {
+                array[i] = lookahead[(lookaheadHead + i) & mask];
             }
-        } catch (Exception ignored) {
+        }
+        lookahead = array;
+        lookaheadHead = 0;
+        countedLookahead = 0;
+    }
 
+    /**
+     * 从字符缓冲区中解码并消费一个 Unicode Code Point，必要时重新填充缓冲区。
+     *
+     * @return 解码得到的 Code Point，若数据源已经读完则返回 -1
+     */
+    private int decodeCodepoint() {
+        if (charPosition >= charLimit && !loadChars()) {
+            return -1;
+        }
+        char h = chars[charPosition++];
+        // 判断是否是高代理字符
+        if (!Character.isHighSurrogate(h)) {
+            return h;
+        }
+        // 获取低代理字符
+        if (charPosition >= charLimit && !loadChars()) {
+            throw new IllegalStateException("Incomplete surrogate pair: high surrogate without low surrogate.");
+        }
+        char l = chars[charPosition];
+        if (!Character.isLowSurrogate(l)) {
+            // 孤立的高代理字符按原值返回
+            return h;
+        }
+        charPosition++;
+        return Character.toCodePoint(h, l);
+    }
+
+    /**
+     * 压缩字符缓冲区并调用 loadCharBuffer 重新填充数据。
+     * 该方法只在缓冲区读完时调用，刻意与快速路径分离，使快速路径足够小以便被 JIT 内联。
+     *
+     * @return 如果填充后缓冲区中有可读字符则返回 true，否则返回 false
+     */
+    private boolean loadChars() {
+        countPosition(bytesPerChar());
+        charBuffer.limit(charLimit).position(charPosition);
+        if (pendingCharCapacity > 0) {
+            resizeCharBuffer();
+        }
+        charBuffer.compact();
+        countedPosition = 0;
+        int free = charBuffer.remaining();
+        try {
+            loadCharBuffer(charBuffer);
+        } catch (Exception e) {
+            throw new RuntimeException("Error to load char data", e);
+        } finally {
+            charBuffer.flip();
+            charPosition = charBuffer.position();
+            charLimit = charBuffer.limit();
+        }
+        if (charSizing != null) {
+            int capacity = charBuffer.capacity();
+            int next = charSizing.record(capacity, free, free - (capacity - charLimit));
+            pendingCharCapacity = next != capacity ? next : 0;
+        }
+        return charPosition < charLimit;
+    }
+
+    /**
+     * 将字符缓冲区切换到 pendingCharCapacity 指定的容量，并保留其中尚未读取的字符。
+     * 调用时字符缓冲区处于读模式，切换后仍处于读模式。
+     */
+    private void resizeCharBuffer() {
+        CharBuffer buffer = charBuffer;
+        // 新的容量至少要能容纳尚未读取的字符和一个代理对
+        int capacity = Math.max(pendingCharCapacity, buffer.remaining() + 2);
+        pendingCharCapacity = 0;
+        CharBuffer resized = pool != null ? pool.acquireCharBuffer(capacity) : CharBuffer.allocate(capacity);
+        resized.put(buffer).flip();
+        charBuffer = resized;
+        chars = resized.array();
+        charPosition = 0;
+        charLimit = resized.limit();
+        if (pool != null) {
+            pool.release(buffer);
         }
     }
 
@@ -238,4 +1442,37 @@ public abstract class CodepointLoader implements AutoCloseable {
      * @param charBuffer 要加载数据的目标 CharBuffer
      */
     protected abstract void loadCharBuffer(CharBuffer charBuffer) throws Exception;
+
+    /**
+     * 由直接产出 Code Point 的子类覆盖，将解码后的 Unicode Code Point 写入目标数组。
+     * 只有以 codepointSource 为 true 构造的加载器才会调用该方法，默认实现不支持该操作。
+     *
+     * @param buffer 要填充数据的目标 int 数组
+     * @param offset 目标数组中的起始下标
+     * @param length 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果到达数据源末尾则返回 0 或负值
+     * @throws IllegalStateException 如果数据本身有错误，例如数据源以高代理字符结束，该异常不会被包装
+     * @throws Exception             如果加载过程中发生错误
+     */
+    protected int loadCodepoints(int[] buffer, int offset, int length) throws Exception {
+        throw new UnsupportedOperationException("loadCodepoints is not supported");
+    }
+
+    /**
+     * 由自行准备 Code Point 数组的子类覆盖，在预读环形缓冲区为空时用一个已填充的数组整体替换它，不复制数据。
+     *
+     * <p>返回的缓冲区必须直接包装一个长度为 2 的幂且不小于 bufferSize 的数组，[position, limit) 为可读的 Code Point。
+     * 替换之后该数组归加载器所有，传入的原数组归子类所有，加载器不会再访问它。
+     * 返回没有剩余数据的缓冲区表示到达数据源末尾，此时原数组仍归加载器所有；
+     * 返回 null 表示不替换，加载器会改为调用 loadCodepoints。只有以 codepointSource 为 true 构造的加载器才会调用该方法，
+     * 默认实现返回 null。</p>
+     *
+     * @param buffer 当前的预读环形缓冲区，已经为空，尚未分配时为 null
+     * @return 包装新数组中 Code Point 的缓冲区，或 null
+     * @throws IllegalStateException 如果数据本身有错误，该异常不会被包装
+     * @throws Exception             如果加载过程中发生错误
+     */
+    protected IntBuffer exchangeCodepoints(int[] buffer) throws Exception {
+        return null;
+    }
 }
\ No newline at end of file
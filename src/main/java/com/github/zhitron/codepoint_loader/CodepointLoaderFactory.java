@@ -3,42 +3,172 @@ package com.github.zhitron.codepoint_loader;
 import com.github.zhitron.codepoint_loader.impl.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * 工厂类，用于创建不同类型的 CodepointLoader 实例。
  *
+ * <p>除内存映射文件外，创建的加载器从共享的 {@link BufferPool} 获取缓冲区，并在 close 时归还，
+ * 因此关闭之后不能再使用加载器。</p>
+ *
+ * <p>静态的 of 方法使用默认配置；需要分别调整字符缓冲区和字节缓冲区的大小、字节缓冲区的类型、
+ * 错误输入的处理方式、预读或解码引擎时，可以通过 {@link #builder()} 创建一个配置好的工厂实例，
+ * 再调用其 create 方法创建加载器。工厂实例是不可变的，可以在多个线程之间共享。</p>
+ *
  * @author zhitron
  */
 public final class CodepointLoaderFactory {
+    /**
+     * 配置内存映射文件阈值的系统属性名，单位为字节。
+     * 从文件创建加载器时，文件大小不小于该阈值的文件使用内存映射读取，否则使用输入流读取。
+     */
+    public static final String MAPPED_FILE_THRESHOLD_PROPERTY = "codepoint.loader.mappedFileThreshold";
+
+    /**
+     * 默认的内存映射文件阈值，小文件建立映射的开销高于其节省的读取开销。
+     */
+    public static final long DEFAULT_MAPPED_FILE_THRESHOLD = 1 << 20;
+
+    /**
+     * 默认的字符缓冲区大小。
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /**
+     * 字节数据使用的字符集。
+     */
+    private final Charset charset;
+
+    /**
+     * 字符缓冲区的大小。
+     */
+    private final int charBufferSize;
+
+    /**
+     * 字节缓冲区的大小。
+     */
+    private final int byteBufferSize;
+
+    /**
+     * 是否使用直接缓冲区作为字节缓冲区，为 null 时由数据源决定：通道使用直接缓冲区，输入流使用堆缓冲区。
+     */
+    private final Boolean directBuffers;
+
+    /**
+     * 遇到错误输入或无法映射的字符时的处理方式。
+     */
+    private final CodingErrorAction malformedInputAction;
+
+    /**
+     * 是否为输入流和通道启用后台预读。
+     */
+    private final boolean prefetch;
+
+    /**
+     * 解码引擎。
+     */
+    private final DecodingEngine engine;
+
+    /**
+     * 提供缓冲区的缓冲区池，为 null 时直接分配。
+     */
+    private final BufferPool bufferPool;
+
+    /**
+     * 内存映射文件阈值，单位为字节。
+     */
+    private final long mappedFileThreshold;
+
+    /**
+     * 自适应缓冲区容量的下界，为 0 时不启用自适应缓冲区模式。
+     */
+    private final int minBufferSize;
+
+    /**
+     * 自适应缓冲区容量的上界。
+     */
+    private final int maxBufferSize;
+
+    /**
+     * 构造函数，由构建器的配置创建工厂实例。
+     *
+     * @param builder 构建器
+     */
+    private CodepointLoaderFactory(Builder builder) {
+        this.charset = builder.charset;
+        this.charBufferSize = builder.charBufferSize;
+        this.byteBufferSize = builder.byteBufferSize > 0 ? builder.byteBufferSize : builder.charBufferSize << 2;
+        this.directBuffers = builder.directBuffers;
+        this.malformedInputAction = builder.malformedInputAction;
+        this.prefetch = builder.prefetch;
+        this.engine = builder.engine;
+        this.bufferPool = builder.bufferPool;
+        this.mappedFileThreshold = builder.mappedFileThreshold;
+        this.minBufferSize = builder.minBufferSize;
+        this.maxBufferSize = builder.maxBufferSize;
+    }
 
-    private CodepointLoaderFactory() {
+    /**
+     * 创建一个构建器，用于配置并创建工厂实例。
+     *
+     * @return 使用默认配置的构建器
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * 从字符串创建 CodepointLoader。
+     * 从字符串创建 CodepointLoader，字符串按缓冲区大小分块读取，不会预先复制。
      *
      * @param input 字符串
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(String input) {
-        return new CodepointLoaderByCharArray(input.toCharArray(), 1024);
+        return new CodepointLoaderByCharSequence(input, DEFAULT_BUFFER_SIZE, BufferPool.shared());
     }
 
     /**
-     * 从字符串创建 CodepointLoader，并指定缓冲区大小。
+     * 从字符串创建 CodepointLoader，并指定缓冲区大小，字符串按缓冲区大小分块读取，不会预先复制。
      *
      * @param input      字符串
      * @param bufferSize 缓冲区大小
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(String input, int bufferSize) {
-        return new CodepointLoaderByCharArray(input.toCharArray(), bufferSize);
+        return new CodepointLoaderByCharSequence(input, bufferSize, BufferPool.shared());
+    }
+
+    /**
+     * 从字符序列创建 CodepointLoader，字符序列按缓冲区大小分块读取，不会预先复制。
+     *
+     * @param input 字符序列
+     * @return CodepointLoader 实例
+     */
+    public static CodepointLoader of(CharSequence input) {
+        return new CodepointLoaderByCharSequence(input, DEFAULT_BUFFER_SIZE, BufferPool.shared());
+    }
+
+    /**
+     * 从字符序列创建 CodepointLoader，并指定缓冲区大小，字符序列按缓冲区大小分块读取，不会预先复制。
+     *
+     * @param input      字符序列
+     * @param bufferSize 缓冲区大小
+     * @return CodepointLoader 实例
+     */
+    public static CodepointLoader of(CharSequence input, int bufferSize) {
+        return new CodepointLoaderByCharSequence(input, bufferSize, BufferPool.shared());
     }
 
     /**
@@ -48,7 +178,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(char[] input) {
-        return new CodepointLoaderByCharArray(input, 1024);
+        return new CodepointLoaderByCharArray(input, DEFAULT_BUFFER_SIZE, BufferPool.shared());
     }
 
     /**
@@ -59,7 +189,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(char[] input, int bufferSize) {
-        return new CodepointLoaderByCharArray(input, bufferSize);
+        return new CodepointLoaderByCharArray(input, bufferSize, BufferPool.shared());
     }
 
     /**
@@ -69,7 +199,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(CharBuffer input) {
-        return new CodepointLoaderByCharBuffer(input, 1024);
+        return new CodepointLoaderByCharBuffer(input, DEFAULT_BUFFER_SIZE, BufferPool.shared());
     }
 
     /**
@@ -80,7 +210,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(CharBuffer input, int bufferSize) {
-        return new CodepointLoaderByCharBuffer(input, bufferSize);
+        return new CodepointLoaderByCharBuffer(input, bufferSize, BufferPool.shared());
     }
 
     /**
@@ -90,7 +220,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(Reader input) {
-        return new CodepointLoaderByReader(input, 1024);
+        return new CodepointLoaderByReader(input, DEFAULT_BUFFER_SIZE, BufferPool.shared());
     }
 
     /**
@@ -101,7 +231,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(Reader input, int bufferSize) {
-        return new CodepointLoaderByReader(input, bufferSize);
+        return new CodepointLoaderByReader(input, bufferSize, BufferPool.shared());
     }
 
     /**
@@ -111,7 +241,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(byte[] input) {
-        return new CodepointSequenceLoaderByByteArray(input, StandardCharsets.UTF_8, 1024);
+        return new CodepointSequenceLoaderByByteArray(input, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, BufferPool.shared());
     }
 
     /**
@@ -122,7 +252,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(byte[] input, Charset charset) {
-        return new CodepointSequenceLoaderByByteArray(input, charset, 1024);
+        return new CodepointSequenceLoaderByByteArray(input, charset, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, BufferPool.shared());
     }
 
     /**
@@ -134,7 +264,41 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(byte[] input, Charset charset, int bufferSize) {
-        return new CodepointSequenceLoaderByByteArray(input, charset, bufferSize);
+        return new CodepointSequenceLoaderByByteArray(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER, BufferPool.shared());
+    }
+
+    /**
+     * 从 ByteBuffer 创建 CodepointSequenceLoader（使用 UTF-8 编码），直接解码缓冲区中 [position, limit) 范围内的字节，不会复制。
+     * 堆外内存段可以通过 MemorySegment.asByteBuffer() 传入。
+     *
+     * @param input ByteBuffer，可以是堆缓冲区、直接缓冲区或只读缓冲区
+     * @return CodepointLoader 实例
+     */
+    public static CodepointLoader of(ByteBuffer input) {
+        return of(input, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 从 ByteBuffer 创建 CodepointSequenceLoader，直接解码缓冲区中 [position, limit) 范围内的字节，不会复制。
+     *
+     * @param input   ByteBuffer，可以是堆缓冲区、直接缓冲区或只读缓冲区
+     * @param charset 字符集
+     * @return CodepointLoader 实例
+     */
+    public static CodepointLoader of(ByteBuffer input, Charset charset) {
+        return of(input, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 从 ByteBuffer 创建 CodepointSequenceLoader，并指定缓冲区大小，直接解码缓冲区中 [position, limit) 范围内的字节，不会复制。
+     *
+     * @param input      ByteBuffer，可以是堆缓冲区、直接缓冲区或只读缓冲区
+     * @param charset    字符集
+     * @param bufferSize 缓冲区大小
+     * @return CodepointLoader 实例
+     */
+    public static CodepointLoader of(ByteBuffer input, Charset charset, int bufferSize) {
+        return new CodepointSequenceLoaderByByteBuffer(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER, CodingErrorAction.REPLACE, BufferPool.shared());
     }
 
     /**
@@ -144,7 +308,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(InputStream input) {
-        return new CodepointSequenceLoaderByInputStream(input, StandardCharsets.UTF_8, 1024);
+        return new CodepointSequenceLoaderByInputStream(input, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -155,7 +319,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(InputStream input, Charset charset) {
-        return new CodepointSequenceLoaderByInputStream(input, charset, 1024);
+        return new CodepointSequenceLoaderByInputStream(input, charset, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -167,7 +331,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(InputStream input, Charset charset, int bufferSize) {
-        return new CodepointSequenceLoaderByInputStream(input, charset, bufferSize);
+        return new CodepointSequenceLoaderByInputStream(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -177,7 +341,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(ReadableByteChannel input) {
-        return new CodepointSequenceLoaderByReadableByteChannel(input, StandardCharsets.UTF_8, 1024);
+        return new CodepointSequenceLoaderByReadableByteChannel(input, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -188,7 +352,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(ReadableByteChannel input, Charset charset) {
-        return new CodepointSequenceLoaderByReadableByteChannel(input, charset, 1024);
+        return new CodepointSequenceLoaderByReadableByteChannel(input, charset, DEFAULT_BUFFER_SIZE, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -200,7 +364,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(ReadableByteChannel input, Charset charset, int bufferSize) {
-        return new CodepointSequenceLoaderByReadableByteChannel(input, charset, bufferSize);
+        return new CodepointSequenceLoaderByReadableByteChannel(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
     }
 
     /**
@@ -212,7 +376,7 @@ public final class CodepointLoaderFactory {
      * @return CodepointLoader 实例
      */
     public static CodepointLoader of(String input, Charset charset, int bufferSize) {
-        return new CodepointSequenceLoaderByByteArray(input.getBytes(charset), charset, bufferSize);
+        return new CodepointSequenceLoaderByByteArray(input.getBytes(charset), charset, bufferSize, DecodingEngine.CHARSET_DECODER, BufferPool.shared());
     }
 
     /**
@@ -223,7 +387,7 @@ public final class CodepointLoaderFactory {
      * @throws IOException 如果打开文件失败
      */
     public static CodepointLoader of(File input) throws IOException {
-        return new CodepointSequenceLoaderByInputStream(new FileInputStream(input), StandardCharsets.UTF_8, 1024);
+        return of(input.toPath(), StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
     }
 
     /**
@@ -236,7 +400,7 @@ public final class CodepointLoaderFactory {
      * @throws IOException 如果打开文件失败
      */
     public static CodepointLoader of(File input, Charset charset, int bufferSize) throws IOException {
-        return new CodepointSequenceLoaderByInputStream(new FileInputStream(input), charset, bufferSize);
+        return of(input.toPath(), charset, bufferSize);
     }
 
     /**
@@ -247,19 +411,414 @@ public final class CodepointLoaderFactory {
      * @throws IOException 如果打开文件失败
      */
     public static CodepointLoader of(Path input) throws IOException {
-        return new CodepointSequenceLoaderByInputStream(Files.newInputStream(input), StandardCharsets.UTF_8, 1024);
+        return of(input, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
     }
 
     /**
      * 从文件路径创建 CodepointLoader，并指定编码和缓冲区大小。
+     * 文件大小不小于内存映射阈值时使用内存映射读取，否则使用输入流读取。
      *
      * @param input      文件路径
      * @param charset    字符集
      * @param bufferSize 缓冲区大小
      * @return CodepointLoader 实例
      * @throws IOException 如果打开文件失败
+     * @see #MAPPED_FILE_THRESHOLD_PROPERTY
      */
     public static CodepointLoader of(Path input, Charset charset, int bufferSize) throws IOException {
-        return new CodepointSequenceLoaderByInputStream(Files.newInputStream(input), charset, bufferSize);
+        long size = Files.size(input);
+        if (size >= mappedFileThreshold()) {
+            return new CodepointSequenceLoaderByMappedFile(input, charset, bufferSize);
+        }
+        return new CodepointSequenceLoaderByInputStream(Files.newInputStream(input), charset, bufferSize, DecodingEngine.CHARSET_DECODER, false, BufferPool.shared());
+    }
+
+    /**
+     * 将文件切分为 parts 个互不重叠的字节区间，并为每个区间创建一个 CodepointLoader，以便在多个线程中并行处理。
+     *
+     * <p>切分点会向后对齐到字符的起始字节：UTF-8 跳过续字节（10xxxxxx），单字节字符集的任意位置都是字符边界。
+     * alignToLine 为 true 时切分点进一步对齐到下一个换行符之后，使每一行完整地落在同一个区间中。
+     * 按顺序拼接各个加载器的内容即为整个文件的内容，对齐后部分区间可能为空。</p>
+     *
+     * <p>每个加载器通过内存映射读取自己的区间，彼此独立，可以分别交给 fork/join 任务或并行流处理，使用完毕后需要分别关闭。</p>
+     *
+     * @param input       文件路径
+     * @param charset     字符集，只支持 UTF-8 和单字节字符集
+     * @param bufferSize  缓冲区大小
+     * @param parts       区间的数量，必须大于 0
+     * @param alignToLine 是否将切分点对齐到行首
+     * @return 按文件顺序排列的 CodepointLoader 列表，大小为 parts
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public static List<CodepointLoader> split(Path input, Charset charset, int bufferSize, int parts, boolean alignToLine) throws IOException {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("parts must be greater than 0");
+        }
+        boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+        if (!CodepointSequenceLoader.isSplittable(charset)) {
+            throw new IllegalArgumentException("Charset cannot be split at byte boundaries: " + charset);
+        }
+        long[] bounds = new long[parts + 1];
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            bounds[parts] = size;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            for (int i = 1; i < parts; i++) {
+                long bound = Math.max(bounds[i - 1], size / parts * i + size % parts * i / parts);
+                bounds[i] = alignBound(channel, buffer, bound, size, utf8, alignToLine);
+            }
+        }
+        List<CodepointLoader> loaders = new ArrayList<>(parts);
+        try {
+            for (int i = 0; i < parts; i++) {
+                loaders.add(new CodepointSequenceLoaderByMappedFile(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER, bounds[i], bounds[i + 1] - bounds[i]));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (CodepointLoader loader : loaders) {
+                try {
+                    loader.close();
+                } catch (Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        return loaders;
+    }
+
+    /**
+     * 将切分点向后移动到字符的起始字节，alignToLine 为 true 时移动到下一个换行符之后。
+     *
+     * @param channel     文件通道
+     * @param buffer      读取使用的临时缓冲区
+     * @param bound       初始的切分点
+     * @param size        文件的总字节数
+     * @param utf8        字符集是否为 UTF-8
+     * @param alignToLine 是否将切分点对齐到行首
+     * @return 对齐后的切分点，不超过 size
+     * @throws IOException 如果读取文件失败
+     */
+    private static long alignBound(FileChannel channel, ByteBuffer buffer, long bound, long size, boolean utf8, boolean alignToLine) throws IOException {
+        if (bound == 0) {
+            return 0;
+        }
+        // 从切分点前一个字节开始检查，以便判断切分点是否已经位于行首
+        long position = bound - 1;
+        while (position < size) {
+            buffer.clear();
+            int len = channel.read(buffer, position);
+            if (len <= 0) {
+                break;
+            }
+            for (int i = 0; i < len; i++, position++) {
+                byte b = buffer.get(i);
+                if (alignToLine) {
+                    if (b == '\n') {
+                        return position + 1;
+                    }
+                } else if (position >= bound && (!utf8 || (b & 0xC0) != 0x80 || position - bound >= 3)) {
+                    return position;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 使用当前配置从字符序列创建 CodepointLoader，字符数据分块直接读取，不经过解码，也不会预先复制。
+     *
+     * @param input 字符序列，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(CharSequence input) {
+        return configure(new CodepointLoaderByCharSequence(input, charBufferSize, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从字符数组创建 CodepointLoader。
+     *
+     * @param input 字符数组，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(char[] input) {
+        return configure(new CodepointLoaderByCharArray(input, charBufferSize, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从 CharBuffer 创建 CodepointLoader。
+     *
+     * @param input CharBuffer，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(CharBuffer input) {
+        return configure(new CodepointLoaderByCharBuffer(input, charBufferSize, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从 Reader 创建 CodepointLoader。
+     *
+     * @param input Reader，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(Reader input) {
+        return configure(new CodepointLoaderByReader(input, charBufferSize, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从字节数组创建 CodepointLoader，字节数组直接作为解码缓冲区，不使用字节缓冲区。
+     *
+     * @param input 字节数组，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(byte[] input) {
+        return configure(new CodepointSequenceLoaderByByteArray(input, charset, charBufferSize, engine, malformedInputAction, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从 ByteBuffer 创建 CodepointLoader，缓冲区直接作为解码缓冲区，不使用字节缓冲区，也不会复制。
+     *
+     * @param input ByteBuffer，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(ByteBuffer input) {
+        return configure(new CodepointSequenceLoaderByByteBuffer(input, charset, charBufferSize, engine, malformedInputAction, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从 InputStream 创建 CodepointLoader。
+     *
+     * @param input InputStream，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(InputStream input) {
+        return configure(new CodepointSequenceLoaderByInputStream(input, charset, charBufferSize, byteBufferSize, engine,
+                directBuffers != null && directBuffers, malformedInputAction, prefetch, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从 ReadableByteChannel 创建 CodepointLoader。
+     *
+     * @param input ReadableByteChannel，不能为 null
+     * @return CodepointLoader 实例
+     */
+    public CodepointLoader create(ReadableByteChannel input) {
+        return configure(new CodepointSequenceLoaderByReadableByteChannel(input, charset, charBufferSize, byteBufferSize, engine,
+                directBuffers == null || directBuffers, malformedInputAction, prefetch, bufferPool));
+    }
+
+    /**
+     * 使用当前配置从文件创建 CodepointLoader。
+     *
+     * @param input 文件，不能为 null
+     * @return CodepointLoader 实例
+     * @throws IOException 如果打开文件失败
+     */
+    public CodepointLoader create(File input) throws IOException {
+        return create(input.toPath());
+    }
+
+    /**
+     * 使用当前配置从文件路径创建 CodepointLoader。
+     * 文件大小不小于内存映射阈值时使用内存映射读取，此时字节缓冲区和预读的配置不起作用；否则使用输入流读取。
+     *
+     * @param input 文件路径，不能为 null
+     * @return CodepointLoader 实例
+     * @throws IOException 如果打开文件失败
+     */
+    public CodepointLoader create(Path input) throws IOException {
+        long size = Files.size(input);
+        if (size >= mappedFileThreshold) {
+            return configure(new CodepointSequenceLoaderByMappedFile(input, charset, charBufferSize, engine, malformedInputAction,
+                    CodepointSequenceLoaderByMappedFile.DEFAULT_WINDOW_SIZE));
+        }
+        return create(Files.newInputStream(input));
+    }
+
+    /**
+     * 按当前配置为新创建的加载器启用自适应缓冲区模式。
+     *
+     * @param loader 新创建的加载器
+     * @return 传入的加载器
+     */
+    private CodepointLoader configure(CodepointLoader loader) {
+        if (minBufferSize > 0) {
+            loader.enableAdaptiveBuffers(minBufferSize, maxBufferSize);
+        }
+        return loader;
+    }
+
+    /**
+     * 获取内存映射文件阈值，优先使用系统属性中的配置。
+     *
+     * @return 内存映射文件阈值，单位为字节
+     */
+    private static long mappedFileThreshold() {
+        return Long.getLong(MAPPED_FILE_THRESHOLD_PROPERTY, DEFAULT_MAPPED_FILE_THRESHOLD);
+    }
+
+    /**
+     * CodepointLoaderFactory 的构建器，用于配置工厂实例创建的加载器。
+     *
+     * <p>未配置的选项与静态的 of 方法保持一致：UTF-8 字符集、1024 大小的字符缓冲区、
+     * 四倍于字符缓冲区的字节缓冲区、以替换字符代替错误输入、不预读、CHARSET_DECODER 引擎和共享的缓冲区池。</p>
+     *
+     * @author zhitron
+     */
+    public static final class Builder {
+        private Charset charset = StandardCharsets.UTF_8;
+        private int charBufferSize = DEFAULT_BUFFER_SIZE;
+        private int byteBufferSize;
+        private Boolean directBuffers;
+        private CodingErrorAction malformedInputAction = CodingErrorAction.REPLACE;
+        private boolean prefetch;
+        private DecodingEngine engine = DecodingEngine.CHARSET_DECODER;
+        private BufferPool bufferPool = BufferPool.shared();
+        private long mappedFileThreshold = CodepointLoaderFactory.mappedFileThreshold();
+        private int minBufferSize;
+        private int maxBufferSize;
+
+        private Builder() {
+        }
+
+        /**
+         * 设置字节数据使用的字符集。
+         *
+         * @param charset 字符集，不能为 null
+         * @return 当前构建器
+         */
+        public Builder charset(Charset charset) {
+            this.charset = Objects.requireNonNull(charset, "The Charset cannot be null");
+            return this;
+        }
+
+        /**
+         * 设置字符缓冲区的大小，它同时是 peek 方法可以查看的最大偏移量。
+         *
+         * @param charBufferSize 字符缓冲区的大小，必须大于 0
+         * @return 当前构建器
+         */
+        public Builder charBufferSize(int charBufferSize) {
+            if (charBufferSize <= 0) {
+                throw new IllegalArgumentException("charBufferSize must be greater than 0");
+            }
+            this.charBufferSize = charBufferSize;
+            return this;
+        }
+
+        /**
+         * 设置从输入流或通道读取字节数据时使用的字节缓冲区的大小，未设置时为字符缓冲区大小的四倍。
+         *
+         * @param byteBufferSize 字节缓冲区的大小，必须不小于 {@link CodepointSequenceLoader#MIN_BYTE_BUFFER_SIZE}
+         * @return 当前构建器
+         */
+        public Builder byteBufferSize(int byteBufferSize) {
+            if (byteBufferSize < CodepointSequenceLoader.MIN_BYTE_BUFFER_SIZE) {
+                throw new IllegalArgumentException("byteBufferSize must be at least " + CodepointSequenceLoader.MIN_BYTE_BUFFER_SIZE);
+            }
+            this.byteBufferSize = byteBufferSize;
+            return this;
+        }
+
+        /**
+         * 设置字节缓冲区使用直接缓冲区还是堆缓冲区，未设置时通道使用直接缓冲区，输入流使用堆缓冲区。
+         * 字符缓冲区总是堆缓冲区。
+         *
+         * @param directBuffers 是否使用直接缓冲区
+         * @return 当前构建器
+         */
+        public Builder directBuffers(boolean directBuffers) {
+            this.directBuffers = directBuffers;
+            return this;
+        }
+
+        /**
+         * 设置遇到错误输入或无法映射的字符时的处理方式。
+         * 不为 REPLACE 时 UTF-8 专用引擎不起作用，总是使用 CHARSET_DECODER 引擎。
+         *
+         * @param malformedInputAction 处理方式，不能为 null
+         * @return 当前构建器
+         */
+        public Builder malformedInputAction(CodingErrorAction malformedInputAction) {
+            this.malformedInputAction = Objects.requireNonNull(malformedInputAction, "The CodingErrorAction cannot be null");
+            return this;
+        }
+
+        /**
+         * 设置是否为输入流和通道启用后台预读。
+         *
+         * @param prefetch 是否启用预读
+         * @return 当前构建器
+         */
+        public Builder prefetch(boolean prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * 设置解码引擎，UTF-8 专用引擎只对 UTF-8 字符集生效。
+         *
+         * @param engine 解码引擎，不能为 null
+         * @return 当前构建器
+         */
+        public Builder engine(DecodingEngine engine) {
+            this.engine = Objects.requireNonNull(engine, "The DecodingEngine cannot be null");
+            return this;
+        }
+
+        /**
+         * 设置提供缓冲区的缓冲区池。
+         *
+         * @param bufferPool 缓冲区池，为 null 时直接分配缓冲区
+         * @return 当前构建器
+         */
+        public Builder bufferPool(BufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * 设置内存映射文件阈值，未设置时使用系统属性中的配置或默认值。
+         *
+         * @param mappedFileThreshold 内存映射文件阈值，单位为字节，Long.MAX_VALUE 表示从不使用内存映射
+         * @return 当前构建器
+         * @see #MAPPED_FILE_THRESHOLD_PROPERTY
+         */
+        public Builder mappedFileThreshold(long mappedFileThreshold) {
+            if (mappedFileThreshold < 0) {
+                throw new IllegalArgumentException("mappedFileThreshold must be greater than or equal to 0");
+            }
+            this.mappedFileThreshold = mappedFileThreshold;
+            return this;
+        }
+
+        /**
+         * 启用自适应缓冲区模式，创建的加载器会根据数据源每次实际提供的数据量在给定范围内调整缓冲区的容量，
+         * 字节缓冲区的范围为该范围的四倍。配合较小的下界，小的数据源只占用很少的内存，大的数据源会逐步达到较大的顺序读取。
+         *
+         * @param minBufferSize 字符缓冲区容量的下界，必须大于 0
+         * @param maxBufferSize 字符缓冲区容量的上界，必须不小于 minBufferSize
+         * @return 当前构建器
+         * @see CodepointLoader#enableAdaptiveBuffers(int, int)
+         */
+        public Builder adaptiveBuffers(int minBufferSize, int maxBufferSize) {
+            if (minBufferSize <= 0) {
+                throw new IllegalArgumentException("minBufferSize must be greater than 0");
+            }
+            if (maxBufferSize < minBufferSize) {
+                throw new IllegalArgumentException("maxBufferSize must be greater than or equal to minBufferSize");
+            }
+            this.minBufferSize = minBufferSize;
+            this.maxBufferSize = maxBufferSize;
+            return this;
+        }
+
+        /**
+         * 使用当前配置创建工厂实例。
+         *
+         * @return 工厂实例
+         */
+        public CodepointLoaderFactory build() {
+            return new CodepointLoaderFactory(this);
+        }
     }
 }
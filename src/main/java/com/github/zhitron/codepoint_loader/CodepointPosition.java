@@ -0,0 +1,123 @@
+package com.github.zhitron.codepoint_loader;
+
+/**
+ * CodepointPosition 是加载器读取位置的不可变快照，由 {@link CodepointLoader#position()} 创建。
+ *
+ * <p>所有偏移量都从加载器的起始位置（或最近一次 reset）开始计算，从 0 开始；行号和列号从 1 开始，
+ * 行以 '\n'、"\r\n" 或 '\r' 分隔，与 CodepointLoader#nextLine 相同，列以 Code Point 为单位计数。</p>
+ *
+ * @author zhitron
+ */
+public final class CodepointPosition {
+    /**
+     * 已消费的 Code Point 数量。
+     */
+    private final long codepointIndex;
+
+    /**
+     * 已消费的 UTF-16 字符数量。
+     */
+    private final long charOffset;
+
+    /**
+     * 已消费的数据在数据源中的字节数，无法确定时为 -1。
+     */
+    private final long byteOffset;
+
+    /**
+     * 当前行号，从 1 开始。
+     */
+    private final long line;
+
+    /**
+     * 当前列号，从 1 开始。
+     */
+    private final long column;
+
+    /**
+     * 构造函数，创建一个位置快照。
+     *
+     * @param codepointIndex 已消费的 Code Point 数量
+     * @param charOffset     已消费的 UTF-16 字符数量
+     * @param byteOffset     已消费的数据在数据源中的字节数，无法确定时为 -1
+     * @param line           当前行号，从 1 开始
+     * @param column         当前列号，从 1 开始
+     */
+    public CodepointPosition(long codepointIndex, long charOffset, long byteOffset, long line, long column) {
+        this.codepointIndex = codepointIndex;
+        this.charOffset = charOffset;
+        this.byteOffset = byteOffset;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * 获取已消费的 Code Point 数量，即下一个 Code Point 的下标。
+     *
+     * @return 已消费的 Code Point 数量
+     */
+    public long getCodepointIndex() {
+        return codepointIndex;
+    }
+
+    /**
+     * 获取已消费的 UTF-16 字符数量。
+     *
+     * @return 已消费的 UTF-16 字符数量
+     */
+    public long getCharOffset() {
+        return charOffset;
+    }
+
+    /**
+     * 获取已消费的数据在数据源中的字节数。
+     * 只有 UTF-8、UTF-16BE、UTF-16LE 和单字节字符集的字节数据源可以确定字节偏移；
+     * 数据中含有被替换的错误输入时，UTF-8 的字节偏移按替换字符计算，是近似值。
+     *
+     * @return 已消费的字节数，无法确定时返回 -1
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    /**
+     * 获取当前行号。
+     *
+     * @return 当前行号，从 1 开始
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * 获取当前列号。
+     *
+     * @return 当前列号，从 1 开始
+     */
+    public long getColumn() {
+        return column;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CodepointPosition)) {
+            return false;
+        }
+        CodepointPosition that = (CodepointPosition) o;
+        return codepointIndex == that.codepointIndex && charOffset == that.charOffset && byteOffset == that.byteOffset
+                && line == that.line && column == that.column;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(codepointIndex) * 31 + Long.hashCode(charOffset);
+    }
+
+    @Override
+    public String toString() {
+        return line + ":" + column;
+    }
+}
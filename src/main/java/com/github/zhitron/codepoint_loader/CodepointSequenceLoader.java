@@ -5,45 +5,82 @@ import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.*;
+import java.util.Objects;
 
 /**
  * CodepointSequenceLoader 是一个抽象类，用于从字节序列加载 Unicode Code Point。
  * 它继承自 CodepointLoader，并提供基于字符集解码的通用实现。
  *
  * <p>此类通过使用 CharsetDecoder 将原始字节解码为字符，支持处理各种编码格式的数据源。
- * 子类需要实现 loadData 方法以提供具体的字节读取逻辑。</p>
+ * 对于 UTF-8 数据源，也可以选择 {@link DecodingEngine#UTF8} 或 {@link DecodingEngine#UTF8_CODEPOINT} 专用引擎，
+ * 分别将字节解码为字符或直接解码为 Code Point。
+ * 子类需要覆盖 loadData(ByteBuffer) 方法，将数据源中的字节直接读取到解码使用的 ByteBuffer 中；
+ * 只覆盖了已过时的 loadData(byte[]) 方法的子类仍然可以使用，字节会经过一个临时数组复制。</p>
  *
  * @author zhitron
  */
 public abstract class CodepointSequenceLoader extends CodepointLoader {
     /**
-     * 用于存储从数据源读取的原始字节数据的缓冲区。
-     * 该缓冲区为 final 类型，确保其在对象生命周期内不可变。
-     * 缓冲区大小通常是字符缓冲区大小的四倍，以适应多字节字符的解码需求。
+     * 字节缓冲区的最小大小，保证能够容纳 UTF-8、GB18030 等字符集中最长的一个字符。
      */
-    private final byte[] buffer;
+    public static final int MIN_BYTE_BUFFER_SIZE = 4;
 
     /**
-     * 用于处理字节数据的 NIO ByteBuffer。
-     * 该缓冲区为 final 类型，确保其在对象生命周期内不可变。
-     * 分配的大小是字符缓冲区大小的八倍，以确保能够容纳足够多的字节数据。
+     * 解码使用的字节缓冲区，始终处于读模式，[position, limit) 为尚未解码的字节。
+     * 由数据源读取时，分配的大小是字符缓冲区大小的四倍，以适应多字节字符的解码需求；
+     * 由调用者提供的字节数据创建时，该缓冲区直接包装原始数据，不会复制，并可通过 loadWindow 切换到下一个窗口。
      */
-    private final ByteBuffer byteBuffer;
+    private ByteBuffer byteBuffer;
+
+    /**
+     * 标志位，指示 byteBuffer 是否由调用者提供。
+     * 为 true 时不会调用 loadData，也不会压缩缓冲区，以免修改调用者的数据，新的数据通过 loadWindow 获得。
+     */
+    private final boolean windowed;
+
+    /**
+     * 实际使用的解码引擎，字符集不是 UTF-8 时总是 CHARSET_DECODER。
+     */
+    private final DecodingEngine engine;
+
+    /**
+     * 标志位，指示 UTF8 引擎最近解码的数据是否以多字节字符为主。
+     * 此时 ASCII 批量转换几乎总是落空，改由 charsetDecoder 解码，直到数据重新以 ASCII 为主。
+     */
+    private boolean multibyte;
 
     /**
      * 用于将字节数据解码为字符的 CharsetDecoder。
      * 该解码器为 final 类型，确保其在对象生命周期内不可变。
-     * 默认配置为遇到非法输入或不可映射字符时进行替换处理。
+     * 默认配置为遇到非法输入或不可映射字符时进行替换处理，也可以在创建时指定其它处理方式。
      */
     private final CharsetDecoder charsetDecoder;
 
     /**
-     * 标志位，指示当前字节缓冲区是否已加载完成。
-     * 默认值为 true，表示初始状态下缓冲区为空且需要加载数据。
-     * 当数据被加载到缓冲区后，该标志会被设置为 false，
-     * 在解码完成后再次设置为 true，表示需要重新加载数据。
+     * 标志位，指示字符集是否可以从任意字节边界重新同步，即 UTF-8 或单字节字符集。
+     * 只有这类字符集的数据才能在字节层面切分。
+     */
+    private final boolean splittable;
+
+    /**
+     * 计算字节偏移的方式，由字符集决定。
      */
-    private boolean loaded = true;
+    private final int bytesPerChar;
+
+    /**
+     * 字节缓冲区的自适应容量调整策略，未启用自适应模式或字节数据由调用者提供时为 null。
+     */
+    private AdaptiveSizing byteSizing;
+
+    /**
+     * 下一次读取前要切换到的字节缓冲区容量，为 0 时不需要切换。
+     */
+    private int pendingByteCapacity;
+
+    /**
+     * 兼容只实现了 loadData(byte[]) 的子类所使用的临时数组，仅在需要时分配。
+     */
+    private byte[] staging;
 
     /**
      * 构造函数，初始化具有指定字符集和缓冲区大小的 CodepointSequenceLoader。
@@ -52,48 +89,276 @@ public abstract class CodepointSequenceLoader extends CodepointLoader {
      * @param bufferSize 字符缓冲区的大小，必须大于 0
      */
     public CodepointSequenceLoader(Charset charset, int bufferSize) {
-        super(bufferSize);
+        this(charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
+
+    /**
+     * 构造函数，初始化具有指定字符集、缓冲区大小和解码引擎的 CodepointSequenceLoader。
+     *
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     */
+    public CodepointSequenceLoader(Charset charset, int bufferSize, DecodingEngine engine) {
+        this(charset, bufferSize, engine, false);
+    }
+
+    /**
+     * 构造函数，初始化具有指定字符集、缓冲区大小和解码引擎的 CodepointSequenceLoader，并指定字节缓冲区的类型。
+     *
+     * <p>直接缓冲区适合由通道读取的数据源，可以省去通道内部的一次复制。</p>
+     *
+     * @param charset      用于解码字节数据的字符集，不能为 null
+     * @param bufferSize   字符缓冲区的大小，必须大于 0
+     * @param engine       解码引擎，不能为 null
+     * @param directBuffer 是否使用直接缓冲区作为字节缓冲区
+     */
+    protected CodepointSequenceLoader(Charset charset, int bufferSize, DecodingEngine engine, boolean directBuffer) {
+        this(charset, bufferSize, engine, directBuffer, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定字符集、缓冲区大小和解码引擎的 CodepointSequenceLoader，
+     * 并指定字节缓冲区的类型和提供缓冲区的缓冲区池。
+     *
+     * @param charset      用于解码字节数据的字符集，不能为 null
+     * @param bufferSize   字符缓冲区的大小，必须大于 0
+     * @param engine       解码引擎，不能为 null
+     * @param directBuffer 是否使用直接缓冲区作为字节缓冲区
+     * @param pool         提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配，缓冲区在 close 时归还
+     */
+    protected CodepointSequenceLoader(Charset charset, int bufferSize, DecodingEngine engine, boolean directBuffer, BufferPool pool) {
+        this(charset, bufferSize, bufferSize << 2, engine, directBuffer, CodingErrorAction.REPLACE, pool); // 缓冲区大小为字符缓冲区大小的4倍
+    }
+
+    /**
+     * 构造函数，分别指定字符缓冲区和字节缓冲区的大小、解码引擎、字节缓冲区的类型、遇到错误输入时的处理方式和缓冲区池。
+     *
+     * <p>UTF-8 专用引擎只支持以替换字符代替错误输入，malformedInputAction 不为 REPLACE 时使用 CHARSET_DECODER 引擎。
+     * 选择 REPORT 时，错误输入会以 MalformedInputException 或 UnmappableCharacterException 作为原因抛出。</p>
+     *
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param byteBufferSize       字节缓冲区的大小，必须不小于 {@link #MIN_BYTE_BUFFER_SIZE}
+     * @param engine               解码引擎，不能为 null
+     * @param directBuffer         是否使用直接缓冲区作为字节缓冲区
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param pool                 提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配，缓冲区在 close 时归还
+     */
+    protected CodepointSequenceLoader(Charset charset, int bufferSize, int byteBufferSize, DecodingEngine engine, boolean directBuffer, CodingErrorAction malformedInputAction, BufferPool pool) {
+        this(charset, bufferSize, engine, allocateByteBuffer(checkByteBufferSize(byteBufferSize), directBuffer, pool), false, malformedInputAction, pool);
+    }
+
+    /**
+     * 构造函数，由已经完整存在于内存中的字节数据创建 CodepointSequenceLoader。
+     *
+     * <p>字节数据直接作为解码缓冲区使用，不会复制，也不会被修改，loadData 不会被调用。
+     * 输入的位置和界限在创建时确定，之后对输入缓冲区位置的修改不会影响加载器。
+     * 如果输入只是数据的第一个窗口，子类可以覆盖 loadWindow 方法提供后续的窗口。</p>
+     *
+     * @param input      包含输入数据的字节缓冲区，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     */
+    protected CodepointSequenceLoader(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine) {
+        this(input, charset, bufferSize, engine, null);
+    }
+
+    /**
+     * 构造函数，由已经完整存在于内存中的字节数据创建 CodepointSequenceLoader，并指定提供字符缓冲区的缓冲区池。
+     *
+     * @param input      包含输入数据的字节缓冲区，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param pool       提供字符缓冲区的缓冲区池，为 null 时直接分配，缓冲区在 close 时归还
+     */
+    protected CodepointSequenceLoader(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine, BufferPool pool) {
+        this(input, charset, bufferSize, engine, CodingErrorAction.REPLACE, pool);
+    }
+
+    /**
+     * 构造函数，由已经完整存在于内存中的字节数据创建 CodepointSequenceLoader，并指定遇到错误输入时的处理方式和提供字符缓冲区的缓冲区池。
+     *
+     * @param input                包含输入数据的字节缓冲区，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param engine               解码引擎，不能为 null
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param pool                 提供字符缓冲区的缓冲区池，为 null 时直接分配，缓冲区在 close 时归还
+     */
+    protected CodepointSequenceLoader(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction malformedInputAction, BufferPool pool) {
+        this(charset, bufferSize, engine, Objects.requireNonNull(input, "The ByteBuffer cannot be null").slice(), true, malformedInputAction, pool);
+    }
+
+    /**
+     * 内部构造函数，使用给定的字节缓冲区初始化 CodepointSequenceLoader。
+     *
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param byteBuffer 处于读模式的字节缓冲区
+     * @param windowed   byteBuffer 是否由调用者提供
+     * @param action     遇到错误输入或无法映射的字符时的处理方式
+     * @param pool       提供缓冲区的缓冲区池，可以为 null
+     */
+    private CodepointSequenceLoader(Charset charset, int bufferSize, DecodingEngine engine, ByteBuffer byteBuffer, boolean windowed, CodingErrorAction action, BufferPool pool) {
+        super(bufferSize, resolveEngine(charset, engine, action) == DecodingEngine.UTF8_CODEPOINT, pool);
+        this.engine = resolveEngine(charset, engine, action);
+        this.byteBuffer = byteBuffer;
+        this.windowed = windowed;
+        this.charsetDecoder = charset.newDecoder()
+                .onMalformedInput(action)
+                .onUnmappableCharacter(action);
+        this.splittable = isSplittable(charset);
+        this.bytesPerChar = bytesPerChar(charset);
+    }
+
+    /**
+     * 判断字符集的数据是否可以在任意字节位置附近找到字符边界，即 UTF-8 或单字节字符集。
+     *
+     * @param charset 字符集
+     * @return 如果可以在字节层面切分则返回 true
+     */
+    static boolean isSplittable(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return true;
+        }
+        try {
+            return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 根据字符集确定计算字节偏移的方式：UTF-8 按编码长度计算，UTF-16BE、UTF-16LE 和单字节字符集按固定长度计算，
+     * 其它字符集（包括带字节顺序标记的 UTF-16）无法确定。
+     *
+     * @param charset 字符集
+     * @return 每个 UTF-16 字符对应的字节数，或 PositionCounter.UTF8_BYTES、PositionCounter.UNKNOWN_BYTES
+     */
+    private static int bytesPerChar(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return PositionCounter.UTF8_BYTES;
+        }
+        if (StandardCharsets.UTF_16BE.equals(charset) || StandardCharsets.UTF_16LE.equals(charset)) {
+            return 2;
+        }
+        return isSplittable(charset) ? 1 : PositionCounter.UNKNOWN_BYTES;
+    }
+
+    /**
+     * 根据字符集确定实际使用的解码引擎，UTF-8 专用引擎只对 UTF-8 字符集生效。
+     *
+     * @param charset 用于解码字节数据的字符集，不能为 null
+     * @param engine  解码引擎，不能为 null
+     * @param action  遇到错误输入时的处理方式，不能为 null
+     * @return 实际使用的解码引擎
+     */
+    private static DecodingEngine resolveEngine(Charset charset, DecodingEngine engine, CodingErrorAction action) {
         if (charset == null) {
             throw new NullPointerException("charset cannot be null");
         }
-        this.buffer = new byte[bufferSize << 2]; // 缓冲区大小为字符缓冲区大小的4倍
-        this.byteBuffer = ByteBuffer.allocateDirect(bufferSize << 3); // 分配大小为字符缓冲区大小的8倍
-        this.charsetDecoder = charset.newDecoder()
-                .onMalformedInput(CodingErrorAction.REPLACE)
-                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (engine == null) {
+            throw new NullPointerException("engine cannot be null");
+        }
+        if (action == null) {
+            throw new NullPointerException("malformedInputAction cannot be null");
+        }
+        return StandardCharsets.UTF_8.equals(charset) && action == CodingErrorAction.REPLACE ? engine : DecodingEngine.CHARSET_DECODER;
+    }
+
+    /**
+     * 检查字节缓冲区的大小。
+     *
+     * @param byteBufferSize 字节缓冲区的大小
+     * @return 字节缓冲区的大小
+     */
+    private static int checkByteBufferSize(int byteBufferSize) {
+        if (byteBufferSize < MIN_BYTE_BUFFER_SIZE) {
+            throw new IllegalArgumentException("byteBufferSize must be at least " + MIN_BYTE_BUFFER_SIZE);
+        }
+        return byteBufferSize;
+    }
+
+    /**
+     * 分配一个处于读模式的空字节缓冲区。
+     *
+     * @param capacity 缓冲区的容量
+     * @param direct   是否分配直接缓冲区
+     * @param pool     提供缓冲区的缓冲区池，为 null 时直接分配
+     * @return 分配的字节缓冲区
+     */
+    private static ByteBuffer allocateByteBuffer(int capacity, boolean direct, BufferPool pool) {
+        if (capacity <= 0) {
+            // 缓冲区大小不合法时分配空缓冲区，交给父类构造函数报告参数错误
+            capacity = 0;
+        }
+        ByteBuffer buffer;
+        if (pool != null) {
+            buffer = pool.acquireByteBuffer(capacity, direct);
+        } else {
+            buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        return buffer.flip();
     }
 
     /**
      * 实现父类的 loadCharBuffer 方法，将字节数据解码为字符数据并填充到提供的 CharBuffer 中。
      *
-     * <p>该方法首先检查是否需要从数据源加载新的字节数据（当 loaded 为 true 时）。
-     * 如果需要，则调用 loadData 方法获取新数据，并将其放入 byteBuffer。
-     * 然后使用 charsetDecoder 将字节数据解码为字符数据，并存入 charBuffer。
-     * 最后根据解码结果更新 loaded 状态。</p>
+     * <p>该方法使用 charsetDecoder 将 byteBuffer 中的字节数据解码为字符数据，并存入 charBuffer。
+     * 当剩余字节不足以构成一个完整的字符时，调用 loadData 将新的字节数据直接读取到 byteBuffer 中；
+     * 数据源末尾残缺的字节序列按 REPLACE 语义替换。</p>
+     *
+     * <p>选择 {@link DecodingEngine#UTF8} 引擎时，改为使用专用的 UTF-8 解码器，
+     * 对连续的 ASCII 字节按 8 字节一组批量转换。每次解码后按平均每个字符占用的字节数判断数据是否以多字节字符为主，
+     * 是则下一次改用 charsetDecoder，两者对非法输入的处理相同，并且都只在完整字符的边界停止，因此可以随时切换。</p>
      *
      * @param charBuffer 要加载数据的目标 CharBuffer
      */
     @Override
     protected final void loadCharBuffer(CharBuffer charBuffer) {
-        if (loaded) {
-            loaded = false;
-            int len;
-            try {
-                len = loadData(buffer);
-            } catch (IOException e) {
-                throw new UncheckedIOException("Error to load byte data", e);
+        while (true) {
+            int position = charBuffer.position();
+            boolean underflow;
+            if (engine == DecodingEngine.UTF8) {
+                int bytes = byteBuffer.position();
+                underflow = multibyte ? decode(charBuffer, false) : Utf8Decoder.decode(byteBuffer, charBuffer);
+                // 平均每个字符超过 1.5 个字节时，ASCII 批量转换的收益已经抵不上检查的开销
+                multibyte = (byteBuffer.position() - bytes) * 2 > (charBuffer.position() - position) * 3;
+            } else {
+                underflow = decode(charBuffer, false);
             }
-            if (len > buffer.length) {
-                throw new IllegalStateException("Error to load byte data");
+            if (!underflow || charBuffer.position() > position) {
+                return;
             }
-            if (len <= 0) {
-                byteBuffer.clear();
-            } else {
-                byteBuffer.put(buffer, 0, len);
+            // 剩余字节不足以构成一个完整的字符，需要加载新的字节数据
+            if (!loadByteBuffer()) {
+                if (byteBuffer.hasRemaining()) {
+                    if (engine == DecodingEngine.UTF8) {
+                        byteBuffer.position(byteBuffer.limit());
+                        charBuffer.put((char) Utf8Decoder.REPLACEMENT);
+                    } else {
+                        decode(charBuffer, true);
+                        charsetDecoder.reset();
+                    }
+                }
+                return;
             }
-            byteBuffer.flip();
         }
-        CoderResult result = charsetDecoder.decode(byteBuffer, charBuffer, false);
+    }
+
+    /**
+     * 使用 charsetDecoder 将 byteBuffer 中的字节数据解码到 charBuffer 中。
+     *
+     * @param charBuffer 要加载数据的目标 CharBuffer
+     * @param endOfInput byteBuffer 中的字节是否为全部剩余输入
+     * @return 如果因剩余字节不足而停止则返回 true，如果因目标缓冲区已满而停止则返回 false
+     */
+    private boolean decode(CharBuffer charBuffer, boolean endOfInput) {
+        CoderResult result = charsetDecoder.decode(byteBuffer, charBuffer, endOfInput);
         if (result.isError()) {
             try {
                 result.throwException();
@@ -101,21 +366,335 @@ public abstract class CodepointSequenceLoader extends CodepointLoader {
                 throw new UncheckedIOException("Error to decode byte data to char", e);
             }
         }
-        if (result.isUnderflow()) {
-            loaded = true;
-            byteBuffer.compact();
-        } else if (!byteBuffer.hasRemaining()) {
-            byteBuffer.clear();
-            loaded = true;
+        return result.isUnderflow();
+    }
+
+    /**
+     * 实现父类的 loadCodepoints 方法，使用 UTF-8 专用引擎将字节数据直接解码为 Code Point。
+     *
+     * <p>该方法只在选择 {@link DecodingEngine#UTF8_CODEPOINT} 且字符集为 UTF-8 时被调用。
+     * 当剩余字节不足以构成一个完整的 UTF-8 序列时，会从数据源加载新的字节数据；
+     * 数据源末尾残缺的序列与 CharsetDecoder 的 REPLACE 语义一致，替换为一个 U+FFFD。</p>
+     *
+     * @param codepoints 要填充数据的目标 int 数组
+     * @param offset     目标数组中的起始下标
+     * @param length     最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果到达数据源末尾则返回 -1
+     */
+    @Override
+    protected final int loadCodepoints(int[] codepoints, int offset, int length) {
+        while (true) {
+            int count = Utf8Decoder.decode(byteBuffer, codepoints, offset, length);
+            if (count > 0) {
+                return count;
+            }
+            // 剩余字节不足以构成一个完整的序列，需要加载新的字节数据
+            if (!loadByteBuffer()) {
+                if (!byteBuffer.hasRemaining()) {
+                    return -1;
+                }
+                byteBuffer.position(byteBuffer.limit());
+                codepoints[offset] = Utf8Decoder.REPLACEMENT;
+                return 1;
+            }
         }
     }
 
     /**
-     * 抽象方法，由子类实现以提供具体的字节数据加载逻辑。
+     * 压缩 byteBuffer 并调用 loadData 将新的字节数据直接读取到其空闲区域中。
+     * 对于由调用者提供的字节数据，改为调用 loadWindow 切换到下一个窗口；
+     * 子类通过 exchangeByteBuffer 提供了已填充的缓冲区时，直接换用该缓冲区。
      *
-     * @param buffer 要填充数据的目标 byte 数组
+     * @return 如果读取到了新的字节数据则返回 true，如果已到达数据源末尾则返回 false
+     */
+    private boolean loadByteBuffer() {
+        if (windowed) {
+            ByteBuffer window;
+            try {
+                window = loadWindow(byteBuffer.remaining());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error to load byte data", e);
+            }
+            if (window == null) {
+                return false;
+            }
+            byteBuffer = window.slice();
+            return true;
+        }
+        ByteBuffer exchanged;
+        try {
+            exchanged = exchangeByteBuffer(byteBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error to load byte data", e);
+        }
+        if (exchanged != byteBuffer) {
+            if (exchanged == null) {
+                return false;
+            }
+            byteBuffer = exchanged;
+            return true;
+        }
+        if (pendingByteCapacity > 0) {
+            resizeByteBuffer();
+        }
+        byteBuffer.compact();
+        int free = byteBuffer.remaining();
+        int len;
+        try {
+            len = loadData(byteBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error to load byte data", e);
+        } finally {
+            byteBuffer.flip();
+        }
+        if (byteSizing != null) {
+            int capacity = byteBuffer.capacity();
+            int next = byteSizing.record(capacity, free, len);
+            pendingByteCapacity = next != capacity ? next : 0;
+        }
+        return len > 0;
+    }
+
+    /**
+     * 将字节缓冲区切换到 pendingByteCapacity 指定的容量，并保留其中尚未解码的字节。
+     * 新的缓冲区与原缓冲区的类型相同，调用前后字节缓冲区都处于读模式。
+     */
+    private void resizeByteBuffer() {
+        ByteBuffer buffer = byteBuffer;
+        BufferPool pool = getBufferPool();
+        // 新的容量至少要能容纳尚未解码的字节和一个完整的字符
+        int capacity = Math.max(pendingByteCapacity, buffer.remaining() + MIN_BYTE_BUFFER_SIZE);
+        pendingByteCapacity = 0;
+        ByteBuffer resized = allocateByteBuffer(capacity, buffer.isDirect(), pool);
+        resized.clear();
+        resized.put(buffer).flip();
+        byteBuffer = resized;
+        if (pool != null) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 启用自适应缓冲区模式，字节缓冲区的容量范围为字符缓冲区容量范围的四倍。
+     * 由调用者提供的字节数据不经过字节缓冲区，只有字符缓冲区会被调整。
+     *
+     * @param minBufferSize 字符缓冲区容量的下界，必须大于 0
+     * @param maxBufferSize 字符缓冲区容量的上界，必须不小于 minBufferSize
+     */
+    @Override
+    public void enableAdaptiveBuffers(int minBufferSize, int maxBufferSize) {
+        super.enableAdaptiveBuffers(minBufferSize, maxBufferSize);
+        if (windowed) {
+            return;
+        }
+        int min = Math.max(Math.min(minBufferSize, Integer.MAX_VALUE >> 3) << 2, MIN_BYTE_BUFFER_SIZE);
+        int max = Math.max(Math.min(maxBufferSize, Integer.MAX_VALUE >> 3) << 2, min);
+        AdaptiveSizing sizing = new AdaptiveSizing(min, max);
+        byteSizing = sizing;
+        int capacity = sizing.clamp(byteBuffer.capacity());
+        pendingByteCapacity = capacity != byteBuffer.capacity() ? capacity : 0;
+    }
+
+    /**
+     * 获取用于解码字节数据的字符集。
+     *
+     * @return 字符集
+     */
+    protected final Charset getCharset() {
+        return charsetDecoder.charset();
+    }
+
+    /**
+     * 返回根据字符集确定的计算字节偏移的方式。
+     *
+     * @return 每个 UTF-16 字符对应的字节数，或 PositionCounter.UTF8_BYTES、PositionCounter.UNKNOWN_BYTES
+     */
+    @Override
+    int bytesPerChar() {
+        return bytesPerChar;
+    }
+
+    /**
+     * 获取遇到错误输入或无法映射的字符时的处理方式。
+     *
+     * @return 错误输入的处理方式
+     */
+    protected final CodingErrorAction getMalformedInputAction() {
+        return charsetDecoder.malformedInputAction();
+    }
+
+    /**
+     * 获取实际使用的解码引擎。
+     *
+     * @return 解码引擎
+     */
+    protected final DecodingEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 对于由调用者提供的字节数据，以当前窗口中尚未解码的字节数作为估算值。
+     *
+     * @return 估算的剩余数量，无法估算时返回 Long.MAX_VALUE
+     */
+    @Override
+    protected long estimateRemaining() {
+        return windowed ? byteBuffer.remaining() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 将当前窗口中尚未解码的字节在靠近中间的字符边界处切分为两部分，当前加载器之后从切分点继续解码。
+     *
+     * <p>只有由调用者提供字节数据且字符集为 UTF-8 或单字节字符集时才能切分。
+     * 返回的缓冲区与当前窗口共享内容和下标，[position, limit) 为前一部分字节，
+     * 子类可以据此创建加载前一部分数据的新加载器。</p>
+     *
+     * @return 前一部分字节，无法切分时返回 null
+     */
+    protected final ByteBuffer splitByteBuffer() {
+        if (!windowed || !splittable) {
+            return null;
+        }
+        int position = byteBuffer.position();
+        int limit = byteBuffer.limit();
+        int mid = position + ((limit - position) >>> 1);
+        // 跳过 UTF-8 续字节，使切分点落在字符的起始字节上
+        for (int i = 0; i < 3 && mid < limit && (byteBuffer.get(mid) & 0xC0) == 0x80; i++) {
+            mid++;
+        }
+        if (mid <= position || mid >= limit) {
+            return null;
+        }
+        ByteBuffer prefix = byteBuffer.duplicate().limit(mid);
+        byteBuffer.position(mid);
+        return prefix;
+    }
+
+    /**
+     * 将来自缓冲区池的字符缓冲区和字节缓冲区归还，之后加载器不再产出任何数据。
+     */
+    @Override
+    protected void releaseBuffers() {
+        BufferPool pool = getBufferPool();
+        if (pool != null) {
+            ByteBuffer buffer = byteBuffer;
+            byteSizing = null;
+            pendingByteCapacity = 0;
+            byteBuffer = ByteBuffer.allocate(0);
+            if (!windowed) {
+                pool.release(buffer);
+            }
+        }
+        super.releaseBuffers();
+    }
+
+    /**
+     * 丢弃所有已缓冲的字符和字节数据并重置解码器的状态，已分配的缓冲区会被保留。
+     */
+    @Override
+    protected void clearBuffers() {
+        super.clearBuffers();
+        byteBuffer.clear().flip();
+        charsetDecoder.reset();
+    }
+
+    /**
+     * 丢弃所有已缓冲的数据，并将解码缓冲区切换为给定的字节数据，不会复制。
+     * 只有通过字节缓冲区构造的加载器才能调用该方法。
+     *
+     * @param input 包含输入数据的字节缓冲区，不能为 null
+     */
+    protected final void clearBuffers(ByteBuffer input) {
+        Objects.requireNonNull(input, "The ByteBuffer cannot be null");
+        if (!windowed) {
+            throw new IllegalStateException("The loader is not created from a ByteBuffer");
+        }
+        clearBuffers();
+        byteBuffer = input.slice();
+    }
+
+    /**
+     * 丢弃尚未解码的字节数据，之后的加载只会通过 loadWindow 获取新的窗口。
+     * 子类在释放构造时提供的字节数据（例如解除内存映射）之前必须调用该方法，以免再访问已释放的内存。
+     */
+    protected final void discardByteBuffer() {
+        byteBuffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * 由按窗口提供字节数据的子类覆盖，在当前窗口中的数据不足以继续解码时提供下一个窗口。
+     *
+     * <p>只有通过字节缓冲区构造的加载器才会调用该方法。当前窗口末尾尚未解码的 remaining 个字节
+     * 通常是一个残缺的字符序列，返回的新窗口必须以这些字节开头。默认实现返回 null，表示没有更多数据。</p>
+     *
+     * @param remaining 当前窗口末尾尚未解码的字节数
+     * @return 下一个窗口，如果没有更多数据则返回 null
+     * @throws IOException 如果加载过程中发生 I/O 错误
+     */
+    protected ByteBuffer loadWindow(int remaining) throws IOException {
+        return null;
+    }
+
+    /**
+     * 由自行准备字节缓冲区的子类覆盖（例如在后台线程中预读），用一个已填充数据的缓冲区替换当前的解码缓冲区。
+     *
+     * <p>当前缓冲区末尾尚未解码的字节通常是一个残缺的字符序列，返回的缓冲区必须处于读模式并以这些字节开头，
+     * 之后当前缓冲区归子类所有，加载器不会再访问或归还它。返回当前缓冲区本身表示不替换，
+     * 加载器会继续通过 loadData 读取数据；返回 null 表示没有更多数据，此时当前缓冲区仍归加载器所有。
+     * 以窗口模式构造的加载器不会调用该方法。默认实现返回当前缓冲区。</p>
+     *
+     * @param buffer 当前的解码缓冲区，处于读模式
+     * @return 替换后的缓冲区、当前缓冲区本身或 null
+     * @throws IOException 如果加载过程中发生 I/O 错误
+     */
+    protected ByteBuffer exchangeByteBuffer(ByteBuffer buffer) throws IOException {
+        return buffer;
+    }
+
+    /**
+     * 由子类实现以提供具体的字节数据加载逻辑，将数据源中的字节直接写入给定的缓冲区。
+     *
+     * <p>字节从缓冲区的当前位置开始写入，最多写入 remaining() 个字节，写入后缓冲区的位置应相应前移。
+     * 缓冲区可能是直接缓冲区，只能通过 byte 数组读取数据的子类需要自行处理没有底层数组的情况。
+     * 以窗口模式构造的加载器不会调用该方法。</p>
+     *
+     * <p>默认实现通过 loadData(byte[]) 读取到临时数组后再复制到缓冲区中，仅用于兼容只实现了该方法的子类。
+     * 临时数组比缓冲区的空闲区域略小，使压缩后残留的几个字节不会导致每次都重新分配。</p>
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
      * @return 实际读取的字节数，如果到达数据源末尾则返回 0 或负值
      * @throws IOException 如果读取过程中发生 I/O 错误
      */
-    protected abstract int loadData(byte[] buffer) throws IOException;
-}
\ No newline at end of file
+    protected int loadData(ByteBuffer buffer) throws IOException {
+        int free = buffer.remaining();
+        int size = free > MIN_BYTE_BUFFER_SIZE << 1 ? free - MIN_BYTE_BUFFER_SIZE : free;
+        byte[] array = staging;
+        if (array == null || array.length > free || array.length < size) {
+            array = staging = new byte[size];
+        }
+        int len = loadData(array);
+        if (len > array.length) {
+            throw new IllegalStateException("Error to load byte data");
+        }
+        if (len > 0) {
+            buffer.put(array, 0, len);
+        }
+        return len;
+    }
+
+    /**
+     * 由子类实现以提供具体的字节数据加载逻辑，将数据源中的字节写入给定数组的开头。
+     *
+     * <p>该方法只会被默认的 loadData(ByteBuffer) 调用，每次读取都要多复制一次，
+     * 新的子类应直接覆盖 loadData(ByteBuffer)。两个方法都没有覆盖时，第一次读取数据时会抛出异常。</p>
+     *
+     * @param buffer 要填充数据的目标 byte 数组
+     * @return 实际读取的字节数，不能超过数组的长度，如果到达数据源末尾则返回 0 或负值
+     * @throws IOException 如果读取过程中发生 I/O 错误
+     * @deprecated 改为覆盖 {@link #loadData(ByteBuffer)}，将字节直接读取到解码使用的缓冲区中
+     */
+    @Deprecated
+    protected int loadData(byte[] buffer) throws IOException {
+        throw new UnsupportedOperationException("loadData(ByteBuffer) or loadData(byte[]) must be overridden");
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.zhitron.codepoint_loader;
+
+import java.nio.CharBuffer;
+
+/**
+ * CodepointSourceLoader 是一个抽象类，用于直接产出 Unicode Code Point 的加载器。
+ * 它继承自 CodepointLoader，不使用字符缓冲区，解码后的 Code Point 直接写入预读环形缓冲区或调用者的数组。
+ *
+ * <p>子类需要实现 loadCodepoints 方法提供 Code Point。已经在自己的数组中准备好 Code Point 的子类
+ * 还可以覆盖 {@link #exchangeCodepoints(int[])} 方法，将整个数组交给加载器作为预读环形缓冲区，避免再复制一次。</p>
+ *
+ * @author zhitron
+ */
+public abstract class CodepointSourceLoader extends CodepointLoader {
+    /**
+     * 构造函数，初始化具有指定大小的加载器。
+     *
+     * @param bufferSize 缓冲区的大小，同时也是预览偏移量的上限
+     */
+    protected CodepointSourceLoader(int bufferSize) {
+        this(bufferSize, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定大小的加载器，并指定缓冲区池。
+     *
+     * @param bufferSize 缓冲区的大小，同时也是预览偏移量的上限
+     * @param pool       缓冲区池，可以为 null
+     */
+    protected CodepointSourceLoader(int bufferSize, BufferPool pool) {
+        super(bufferSize, true, pool);
+    }
+
+    /**
+     * 直接产出 Code Point 的加载器没有字符缓冲区，不会调用该方法。
+     *
+     * @param charBuffer 要加载数据的目标 CharBuffer
+     */
+    @Override
+    protected final void loadCharBuffer(CharBuffer charBuffer) {
+        throw new IllegalStateException("A codepoint source does not load chars");
+    }
+
+    /**
+     * 由子类实现以提供具体的 Code Point 加载逻辑，将解码后的 Unicode Code Point 写入目标数组。
+     *
+     * @param buffer 要填充数据的目标 int 数组
+     * @param offset 目标数组中的起始下标
+     * @param length 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果到达数据源末尾则返回 0 或负值
+     * @throws IllegalStateException 如果数据本身有错误，例如数据源以高代理字符结束，该异常不会被包装
+     * @throws Exception             如果加载过程中发生错误
+     */
+    @Override
+    protected abstract int loadCodepoints(int[] buffer, int offset, int length) throws Exception;
+}
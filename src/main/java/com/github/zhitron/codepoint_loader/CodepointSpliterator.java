@@ -0,0 +1,80 @@
+package com.github.zhitron.codepoint_loader;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * CodepointSpliterator 是 CodepointLoader 的 Spliterator.OfInt 视图，用于构造 IntStream。
+ *
+ * <p>forEachRemaining 直接委托给 CodepointLoader#forEachCodepoint，按整个缓冲区批量遍历；
+ * trySplit 委托给 CodepointLoader#trySplit，由支持切分的数据源切分出前一部分数据。</p>
+ *
+ * @author zhitron
+ */
+final class CodepointSpliterator implements Spliterator.OfInt {
+    /**
+     * 提供 Code Point 的加载器。
+     */
+    private final CodepointLoader loader;
+
+    /**
+     * 标志位，指示加载器是否由切分产生，为 true 时在遍历结束后关闭加载器。
+     */
+    private final boolean owned;
+
+    /**
+     * 构造函数，初始化加载器的 Spliterator 视图。
+     *
+     * @param loader 提供 Code Point 的加载器
+     * @param owned  是否在遍历结束后关闭加载器
+     */
+    CodepointSpliterator(CodepointLoader loader, boolean owned) {
+        this.loader = loader;
+        this.owned = owned;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (loader.hasNextCodepoint()) {
+            action.accept(loader.nextCodepoint());
+            return true;
+        }
+        release();
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        loader.forEachCodepoint(action);
+        release();
+    }
+
+    @Override
+    public OfInt trySplit() {
+        CodepointLoader prefix = loader.split();
+        return prefix == null ? null : new CodepointSpliterator(prefix, true);
+    }
+
+    @Override
+    public long estimateSize() {
+        return loader.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * 遍历结束后关闭由切分产生的加载器。
+     */
+    private void release() {
+        if (owned) {
+            try {
+                loader.close();
+            } catch (Exception e) {
+                throw new RuntimeException("Error to close loader", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.zhitron.codepoint_loader;
+
+/**
+ * 字节序列加载器使用的解码引擎。
+ *
+ * @author zhitron
+ */
+public enum DecodingEngine {
+    /**
+     * 使用 JDK 的 CharsetDecoder 将字节解码为 UTF-16 字符，再由字符组合出 Code Point，适用于任意字符集。
+     */
+    CHARSET_DECODER,
+
+    /**
+     * 使用专用的 UTF-8 解码器将字节解码为 UTF-16 字符，连续的 ASCII 字节按 8 字节一组批量转换。
+     * 仅在字符集为 UTF-8 时生效，其它字符集仍使用 CharsetDecoder。
+     */
+    UTF8,
+
+    /**
+     * 使用专用的 UTF-8 解码器将字节直接解码为 Code Point，不经过 UTF-16 代理对。
+     * 仅在字符集为 UTF-8 时生效，其它字符集仍使用 CharsetDecoder。
+     */
+    UTF8_CODEPOINT
+}
@@ -0,0 +1,65 @@
+package com.github.zhitron.codepoint_loader;
+
+import java.util.Objects;
+
+/**
+ * LineView 是 {@link CodepointLoader#nextLine()} 返回的可复用字符序列，直接引用加载器内部的字符数组，不复制数据。
+ *
+ * <p>每次读取新的一行时，加载器会将同一个 LineView 指向新的数据，因此其内容只在下一次读取加载器之前有效；
+ * 需要保留时应调用 toString 复制为字符串。subSequence 返回的是复制后的字符串。</p>
+ *
+ * @author zhitron
+ */
+final class LineView implements CharSequence {
+    /**
+     * 存放当前行字符的数组。
+     */
+    private char[] array;
+
+    /**
+     * 当前行在数组中的起始下标。
+     */
+    private int offset;
+
+    /**
+     * 当前行的字符数量。
+     */
+    private int length;
+
+    /**
+     * 将视图指向数组中 [offset, offset + length) 范围内的字符。
+     *
+     * @param array  字符数组
+     * @param offset 起始下标
+     * @param length 字符数量
+     * @return 当前视图
+     */
+    LineView set(char[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, length);
+        return array[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new String(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(array, offset, length);
+    }
+}
@@ -0,0 +1,359 @@
+package com.github.zhitron.codepoint_loader;
+
+/**
+ * PositionCounter 按批次累计已消费数据的 Code Point 数量、字符数量、字节数量、行号和列号。
+ *
+ * <p>加载器不会在消费每个 Code Point 时更新位置，而是在重新填充缓冲区或查询位置时，
+ * 对一整段已消费的数据调用 count 方法。统计换行符和字节数的循环不含分支，便于 JIT 向量化。</p>
+ *
+ * <p>行结束符与 {@link CodepointLoader#nextLine()} 相同：'\n'、'\r' 和 "\r\n" 各计为一个。
+ * "\r\n" 在读到 '\r' 时就计入新的一行，之后的 '\n' 只把该行的起始位置后移一位，因此两者分属不同的批次时也只计一次。</p>
+ *
+ * @author zhitron
+ */
+final class PositionCounter {
+    /**
+     * 字节偏移的计算方式：无法确定。
+     */
+    static final int UNKNOWN_BYTES = 0;
+
+    /**
+     * 字节偏移的计算方式：按 UTF-8 编码的长度计算。
+     */
+    static final int UTF8_BYTES = -1;
+
+    /**
+     * 保存最近若干行起始位置的数量，必须为 2 的幂。回退不超过这么多个换行符时可以准确恢复列号。
+     */
+    private static final int LINE_HISTORY = 16;
+
+    /**
+     * carriageReturns 中表示上一行不是以 '\r' 结束的值，不会与任何 Code Point 下标（包括回退到开头时的 codepoints - 1）相等。
+     */
+    private static final long NO_CARRIAGE_RETURN = Long.MIN_VALUE;
+
+    /**
+     * 已消费的 Code Point 数量。
+     */
+    private long codepoints;
+
+    /**
+     * 已消费的 UTF-16 字符数量。
+     */
+    private long chars;
+
+    /**
+     * 已消费的字节数量。
+     */
+    private long bytes;
+
+    /**
+     * 已消费的行结束符数量。
+     */
+    private long newlines;
+
+    /**
+     * 最近若干行第一个 Code Point 的下标，第 n 个换行符之后的行保存在 n & (LINE_HISTORY - 1) 处。
+     */
+    private final long[] lineStarts = new long[LINE_HISTORY];
+
+    /**
+     * 与 lineStarts 一一对应，记录结束上一行的 '\r' 的下标，上一行以 '\n' 结束或没有上一行时为 NO_CARRIAGE_RETURN。
+     * 用于判断最后消费的 Code Point 是否为 '\r'，以及回退时识别跨批次的 "\r\n"。
+     */
+    private final long[] carriageReturns = new long[LINE_HISTORY];
+
+    /**
+     * 曾经计入的最大换行符数量，用于判断 lineStarts 中的记录是否已被覆盖。
+     */
+    private long maxNewlines;
+
+    /**
+     * 上一段字符是否以高代理字符结束，用于识别跨段的代理对。
+     */
+    private boolean highSurrogate;
+
+    /**
+     * 获取已消费的 Code Point 数量。
+     *
+     * @return 已消费的 Code Point 数量
+     */
+    long codepoints() {
+        return codepoints;
+    }
+
+    /**
+     * 复制当前的计数。
+     *
+     * @return 与当前计数相同的新对象
+     */
+    PositionCounter copy() {
+        PositionCounter copy = new PositionCounter();
+        copy.restore(this);
+        return copy;
+    }
+
+    /**
+     * 将计数恢复为给定对象中的计数。
+     *
+     * @param other 要恢复的计数
+     */
+    void restore(PositionCounter other) {
+        codepoints = other.codepoints;
+        chars = other.chars;
+        bytes = other.bytes;
+        newlines = other.newlines;
+        System.arraycopy(other.lineStarts, 0, lineStarts, 0, LINE_HISTORY);
+        System.arraycopy(other.carriageReturns, 0, carriageReturns, 0, LINE_HISTORY);
+        maxNewlines = other.maxNewlines;
+        highSurrogate = other.highSurrogate;
+    }
+
+    /**
+     * 将所有计数清零。
+     */
+    void reset() {
+        codepoints = 0;
+        chars = 0;
+        bytes = 0;
+        newlines = 0;
+        lineStarts[0] = 0;
+        carriageReturns[0] = NO_CARRIAGE_RETURN;
+        maxNewlines = 0;
+        highSurrogate = false;
+    }
+
+    /**
+     * 累计字符数组中 [from, to) 范围内已消费的字符。
+     *
+     * @param array        字符数组
+     * @param from         起始下标
+     * @param to           结束下标（不包含）
+     * @param bytesPerChar 每个字符对应的字节数，或 UTF8_BYTES、UNKNOWN_BYTES
+     */
+    void count(char[] array, int from, int to, int bytesPerChar) {
+        if (from >= to) {
+            return;
+        }
+        int length = to - from;
+        int feeds = 0;
+        int returns = 0;
+        int surrogates = 0;
+        for (int i = from; i < to; i++) {
+            char c = array[i];
+            feeds += c == '\n' ? 1 : 0;
+            returns += c == '\r' ? 1 : 0;
+            surrogates += Character.isSurrogate(c) ? 1 : 0;
+        }
+        boolean cr = afterCarriageReturn();
+        // 紧跟在 '\r' 之后的 '\n' 不是新的行结束符
+        int pairs = cr && array[from] == '\n' ? 1 : 0;
+        if (returns > 0) {
+            for (int i = from + 1; i < to; i++) {
+                pairs += array[i] == '\n' && array[i - 1] == '\r' ? 1 : 0;
+            }
+        }
+        int lines = feeds + returns - pairs;
+        if (bytesPerChar == UTF8_BYTES) {
+            // 代理对中的每个字符按 2 个字节计算，合计为增补平面字符的 4 个字节
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                char c = array[i];
+                sum += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            }
+            bytes += sum - surrogates;
+        } else {
+            bytes += (long) length * bytesPerChar;
+        }
+        if (cr && array[from] == '\n') {
+            lineStarts[(int) newlines & (LINE_HISTORY - 1)] = codepoints + 1;
+        }
+        // 只记录最后 LINE_HISTORY 个行结束符之后的行起始位置
+        int recorded = Math.min(lines, LINE_HISTORY);
+        int firstRecorded = to;
+        for (int i = to - 1, found = 0; found < recorded; i--) {
+            char c = array[i];
+            if (c == '\r' || c == '\n' && !(i > from ? array[i - 1] == '\r' : cr)) {
+                found++;
+                firstRecorded = i;
+            }
+        }
+        int surrogatePairs = 0;
+        long line = newlines + lines - recorded;
+        boolean high = highSurrogate;
+        for (int i = surrogates > 0 ? from : firstRecorded; i < to; i++) {
+            char c = array[i];
+            if (high && Character.isLowSurrogate(c)) {
+                surrogatePairs++;
+            }
+            high = Character.isHighSurrogate(c);
+            if (i >= firstRecorded && (c == '\n' || c == '\r')) {
+                line = recordLineBreak(line, c, i > from && array[i - 1] == '\r', codepoints + (i - from) - surrogatePairs);
+            }
+        }
+        highSurrogate = surrogates > 0 && high;
+        codepoints += length - surrogatePairs;
+        chars += length;
+        newlines += lines;
+        maxNewlines = Math.max(maxNewlines, newlines);
+    }
+
+    /**
+     * 累计 Code Point 数组中 [from, to) 范围内已消费的 Code Point。
+     *
+     * @param array        Code Point 数组
+     * @param from         起始下标
+     * @param to           结束下标（不包含）
+     * @param bytesPerChar 每个字符对应的字节数，或 UTF8_BYTES、UNKNOWN_BYTES
+     */
+    void count(int[] array, int from, int to, int bytesPerChar) {
+        if (from >= to) {
+            return;
+        }
+        int feeds = 0;
+        int returns = 0;
+        int supplementary = 0;
+        for (int i = from; i < to; i++) {
+            int codepoint = array[i];
+            feeds += codepoint == '\n' ? 1 : 0;
+            returns += codepoint == '\r' ? 1 : 0;
+            supplementary += codepoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 1 : 0;
+        }
+        boolean cr = afterCarriageReturn();
+        int pairs = cr && array[from] == '\n' ? 1 : 0;
+        if (returns > 0) {
+            for (int i = from + 1; i < to; i++) {
+                pairs += array[i] == '\n' && array[i - 1] == '\r' ? 1 : 0;
+            }
+        }
+        int lines = feeds + returns - pairs;
+        int length = to - from;
+        if (bytesPerChar == UTF8_BYTES) {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                int codepoint = array[i];
+                sum += codepoint < 0x80 ? 1 : codepoint < 0x800 ? 2 : codepoint < 0x10000 ? 3 : 4;
+            }
+            bytes += sum;
+        } else {
+            bytes += (long) (length + supplementary) * bytesPerChar;
+        }
+        if (cr && array[from] == '\n') {
+            lineStarts[(int) newlines & (LINE_HISTORY - 1)] = codepoints + 1;
+        }
+        if (lines > 0) {
+            // 只记录最后 LINE_HISTORY 个行结束符之后的行起始位置
+            int recorded = Math.min(lines, LINE_HISTORY);
+            int firstRecorded = to;
+            for (int i = to - 1, found = 0; found < recorded; i--) {
+                int codepoint = array[i];
+                if (codepoint == '\r' || codepoint == '\n' && !(i > from ? array[i - 1] == '\r' : cr)) {
+                    found++;
+                    firstRecorded = i;
+                }
+            }
+            long line = newlines + lines - recorded;
+            for (int i = firstRecorded; i < to; i++) {
+                int codepoint = array[i];
+                if (codepoint == '\n' || codepoint == '\r') {
+                    line = recordLineBreak(line, codepoint, i > from && array[i - 1] == '\r', codepoints + (i - from));
+                }
+            }
+        }
+        codepoints += length;
+        chars += length + supplementary;
+        newlines += lines;
+        maxNewlines = Math.max(maxNewlines, newlines);
+        highSurrogate = false;
+    }
+
+    /**
+     * 从计数中减去 Code Point 数组中 [from, to) 范围内的 Code Point，这些 Code Point 应是最近消费的数据。
+     * 只记录了最近 LINE_HISTORY 行的起始位置，回退到更早的行时列号是近似值。
+     *
+     * @param array        Code Point 数组
+     * @param from         起始下标
+     * @param to           结束下标（不包含）
+     * @param bytesPerChar 每个字符对应的字节数，或 UTF8_BYTES、UNKNOWN_BYTES
+     */
+    void uncount(int[] array, int from, int to, int bytesPerChar) {
+        if (from >= to) {
+            return;
+        }
+        int feeds = 0;
+        int returns = 0;
+        int supplementary = 0;
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            int codepoint = array[i];
+            feeds += codepoint == '\n' ? 1 : 0;
+            returns += codepoint == '\r' ? 1 : 0;
+            supplementary += codepoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 1 : 0;
+            sum += codepoint < 0x80 ? 1 : codepoint < 0x800 ? 2 : codepoint < 0x10000 ? 3 : 4;
+        }
+        int pairs = 0;
+        if (returns > 0) {
+            for (int i = from + 1; i < to; i++) {
+                pairs += array[i] == '\n' && array[i - 1] == '\r' ? 1 : 0;
+            }
+        }
+        int lines = feeds + returns - pairs;
+        int length = to - from;
+        codepoints -= length;
+        chars -= length + supplementary;
+        bytes -= bytesPerChar == UTF8_BYTES ? sum : (long) (length + supplementary) * bytesPerChar;
+        if (array[from] == '\n') {
+            // 开头的 '\n' 如果与回退位置之前的 '\r' 组成 "\r\n"，则不是单独的行结束符，该行的起始位置恢复到 '\r' 之后
+            long line = newlines - lines + 1;
+            int index = (int) line & (LINE_HISTORY - 1);
+            if (line > 0 && maxNewlines - line < LINE_HISTORY && carriageReturns[index] == codepoints - 1 && lineStarts[index] == codepoints + 1) {
+                lineStarts[index] = codepoints;
+                lines--;
+            }
+        }
+        newlines -= lines;
+        highSurrogate = false;
+    }
+
+    /**
+     * 判断最后消费的 Code Point 是否为 '\r'，此时下一个 '\n' 与其组成 "\r\n"。
+     *
+     * @return 如果最后消费的 Code Point 是 '\r' 则返回 true
+     */
+    private boolean afterCarriageReturn() {
+        int index = (int) newlines & (LINE_HISTORY - 1);
+        return newlines > 0 && maxNewlines - newlines < LINE_HISTORY && carriageReturns[index] == codepoints - 1 && lineStarts[index] == codepoints;
+    }
+
+    /**
+     * 记录一个 '\r' 或 '\n' 之后的行起始位置。紧跟在 '\r' 之后的 '\n' 不开始新的行，只把当前行的起始位置后移一位。
+     *
+     * @param line      当前的行结束符数量
+     * @param codepoint '\r' 或 '\n'
+     * @param afterCR   该 Code Point 是否紧跟在同一批次中的 '\r' 之后
+     * @param index     该 Code Point 的下标
+     * @return 记录之后的行结束符数量
+     */
+    private long recordLineBreak(long line, int codepoint, boolean afterCR, long index) {
+        if (codepoint == '\n' && afterCR) {
+            lineStarts[(int) line & (LINE_HISTORY - 1)] = index + 1;
+            return line;
+        }
+        int slot = (int) ++line & (LINE_HISTORY - 1);
+        lineStarts[slot] = index + 1;
+        carriageReturns[slot] = codepoint == '\r' ? index : NO_CARRIAGE_RETURN;
+        return line;
+    }
+
+    /**
+     * 创建当前位置的快照。
+     *
+     * @param bytesPerChar 每个字符对应的字节数，或 UTF8_BYTES、UNKNOWN_BYTES
+     * @return 当前位置的快照
+     */
+    CodepointPosition snapshot(int bytesPerChar) {
+        // 当前行的起始位置已被之后的行覆盖时无法确定，列号按 1 计算
+        long lineStart = maxNewlines - newlines < LINE_HISTORY ? lineStarts[(int) newlines & (LINE_HISTORY - 1)] : codepoints;
+        return new CodepointPosition(codepoints, chars, bytesPerChar == UNKNOWN_BYTES ? -1 : bytes, newlines + 1, codepoints - lineStart + 1);
+    }
+}
@@ -0,0 +1,476 @@
+package com.github.zhitron.codepoint_loader;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * 专用的 UTF-8 解码器，将字节解码为 Unicode Code Point 或 UTF-16 字符。
+ *
+ * <p>对非法输入的处理与 JDK 的 UTF-8 CharsetDecoder 在 REPLACE 模式下保持一致：
+ * 每个非法序列的最大合法前缀被替换为一个 U+FFFD。
+ * 连续的 ASCII 字节每次按 8 字节读取为一个 long，通过检测最高位批量转换。
+ * 合法的多字节序列在一次检查所有后续字节后直接解码，只有不完整或非法的序列才逐项检查。
+ * 具有可访问底层数组的源数据直接按下标读取数组，其它源数据通过 ByteBuffer 的绝对位置访问读取，
+ * 因此堆缓冲区、直接缓冲区以及内存映射的文件都可以直接解码。</p>
+ *
+ * @author zhitron
+ */
+final class Utf8Decoder {
+    /**
+     * 非法输入的替换字符。
+     */
+    static final int REPLACEMENT = 0xFFFD;
+
+    /**
+     * 8 个字节的最高位掩码。
+     */
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    /**
+     * decodeSequence 的返回值，表示剩余字节不足以构成一个完整的序列。
+     */
+    private static final long UNDERFLOW = -1L;
+
+    /**
+     * 以 long 读取 byte 数组中任意位置的 8 个字节，只用于检测最高位，因此字节序无关紧要。
+     */
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private Utf8Decoder() {
+    }
+
+    /**
+     * 将字节缓冲区中的 UTF-8 数据解码为 Code Point 并写入目标数组。
+     * 解码在目标数组写满或剩余字节不足以构成完整序列时停止，未解码的字节保留在缓冲区中。
+     *
+     * @param src 存放 UTF-8 数据的字节缓冲区
+     * @param dst 存放 Code Point 的目标数组
+     * @param off 目标数组中的起始下标
+     * @param len 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量
+     */
+    static int decode(ByteBuffer src, int[] dst, int off, int len) {
+        if (src.hasArray()) {
+            return decodeArray(src, dst, off, len);
+        }
+        int sp = src.position();
+        int sl = src.limit();
+        int dp = off;
+        int dl = off + len;
+        while (dp < dl && sp < sl) {
+            int b1 = src.get(sp);
+            if (b1 >= 0) {
+                // ASCII 快速路径，源和目标的剩余空间都足够时每次转换 8 个字节
+                int end = sp + Math.min(sl - sp, dl - dp);
+                dst[dp++] = b1;
+                sp++;
+                while (sp + 8 <= end && (src.getLong(sp) & NON_ASCII_MASK) == 0) {
+                    for (int i = 0; i < 8; i++) {
+                        dst[dp + i] = src.get(sp + i);
+                    }
+                    sp += 8;
+                    dp += 8;
+                }
+                continue;
+            }
+            int codepoint = decodeWellFormed(src, sp, sl, b1);
+            if (codepoint >= 0) {
+                dst[dp++] = codepoint;
+                sp += sequenceLength(b1);
+                continue;
+            }
+            long result = decodeSequence(src, sp, sl);
+            if (result == UNDERFLOW) {
+                break;
+            }
+            dst[dp++] = (int) result;
+            sp += (int) (result >>> 32);
+        }
+        src.position(sp);
+        return dp - off;
+    }
+
+    /**
+     * 将字节缓冲区中的 UTF-8 数据解码为 UTF-16 字符并写入目标字符缓冲区。
+     * 解码在目标缓冲区写满或剩余字节不足以构成完整序列时停止，未解码的字节保留在缓冲区中。
+     *
+     * @param src 存放 UTF-8 数据的字节缓冲区
+     * @param dst 存放字符的目标缓冲区，必须具有可访问的底层数组
+     * @return 如果因剩余字节不足而停止则返回 true，如果因目标缓冲区已满而停止则返回 false
+     */
+    static boolean decode(ByteBuffer src, CharBuffer dst) {
+        if (src.hasArray()) {
+            return decodeArray(src, dst);
+        }
+        int sp = src.position();
+        int sl = src.limit();
+        char[] da = dst.array();
+        int dBase = dst.arrayOffset();
+        int dp = dBase + dst.position();
+        int dl = dBase + dst.limit();
+        boolean underflow = true;
+        while (sp < sl) {
+            if (dp >= dl) {
+                underflow = false;
+                break;
+            }
+            int b1 = src.get(sp);
+            if (b1 >= 0) {
+                // ASCII 快速路径，源和目标的剩余空间都足够时每次转换 8 个字节
+                int end = sp + Math.min(sl - sp, dl - dp);
+                da[dp++] = (char) b1;
+                sp++;
+                while (sp + 8 <= end && (src.getLong(sp) & NON_ASCII_MASK) == 0) {
+                    for (int i = 0; i < 8; i++) {
+                        da[dp + i] = (char) src.get(sp + i);
+                    }
+                    sp += 8;
+                    dp += 8;
+                }
+                continue;
+            }
+            int codepoint = decodeWellFormed(src, sp, sl, b1);
+            if (codepoint >= 0) {
+                if (codepoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    da[dp++] = (char) codepoint;
+                    sp += sequenceLength(b1);
+                    continue;
+                }
+                if (dl - dp >= 2) {
+                    da[dp++] = Character.highSurrogate(codepoint);
+                    da[dp++] = Character.lowSurrogate(codepoint);
+                    sp += 4;
+                    continue;
+                }
+                underflow = false;
+                break;
+            }
+            long result = decodeSequence(src, sp, sl);
+            if (result == UNDERFLOW) {
+                break;
+            }
+            codepoint = (int) result;
+            if (Character.isBmpCodePoint(codepoint)) {
+                da[dp++] = (char) codepoint;
+            } else if (dl - dp < 2) {
+                underflow = false;
+                break;
+            } else {
+                da[dp++] = Character.highSurrogate(codepoint);
+                da[dp++] = Character.lowSurrogate(codepoint);
+            }
+            sp += (int) (result >>> 32);
+        }
+        src.position(sp);
+        dst.position(dp - dBase);
+        return underflow;
+    }
+
+    /**
+     * decode(ByteBuffer, int[], int, int) 针对具有可访问底层数组的源数据的实现，直接按下标读取数组。
+     *
+     * @param src 存放 UTF-8 数据的字节缓冲区，必须具有可访问的底层数组
+     * @param dst 存放 Code Point 的目标数组
+     * @param off 目标数组中的起始下标
+     * @param len 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量
+     */
+    private static int decodeArray(ByteBuffer src, int[] dst, int off, int len) {
+        byte[] sa = src.array();
+        int base = src.arrayOffset();
+        int sp = base + src.position();
+        int sl = base + src.limit();
+        int dp = off;
+        int dl = off + len;
+        while (dp < dl && sp < sl) {
+            int b1 = sa[sp];
+            if (b1 >= 0) {
+                int end = sp + Math.min(sl - sp, dl - dp);
+                dst[dp++] = b1;
+                sp++;
+                while (sp + 8 <= end && ((long) LONG_VIEW.get(sa, sp) & NON_ASCII_MASK) == 0) {
+                    for (int i = 0; i < 8; i++) {
+                        dst[dp + i] = sa[sp + i];
+                    }
+                    sp += 8;
+                    dp += 8;
+                }
+                continue;
+            }
+            int codepoint = decodeWellFormed(sa, sp, sl, b1);
+            if (codepoint >= 0) {
+                dst[dp++] = codepoint;
+                sp += sequenceLength(b1);
+                continue;
+            }
+            long result = decodeSequence(src, sp - base, sl - base);
+            if (result == UNDERFLOW) {
+                break;
+            }
+            dst[dp++] = (int) result;
+            sp += (int) (result >>> 32);
+        }
+        src.position(sp - base);
+        return dp - off;
+    }
+
+    /**
+     * decode(ByteBuffer, CharBuffer) 针对具有可访问底层数组的源数据的实现，直接按下标读取数组。
+     *
+     * @param src 存放 UTF-8 数据的字节缓冲区，必须具有可访问的底层数组
+     * @param dst 存放字符的目标缓冲区，必须具有可访问的底层数组
+     * @return 如果因剩余字节不足而停止则返回 true，如果因目标缓冲区已满而停止则返回 false
+     */
+    private static boolean decodeArray(ByteBuffer src, CharBuffer dst) {
+        byte[] sa = src.array();
+        int sBase = src.arrayOffset();
+        int sp = sBase + src.position();
+        int sl = sBase + src.limit();
+        char[] da = dst.array();
+        int dBase = dst.arrayOffset();
+        int dp = dBase + dst.position();
+        int dl = dBase + dst.limit();
+        boolean underflow = true;
+        while (sp < sl) {
+            if (dp >= dl) {
+                underflow = false;
+                break;
+            }
+            int b1 = sa[sp];
+            if (b1 >= 0) {
+                int end = sp + Math.min(sl - sp, dl - dp);
+                da[dp++] = (char) b1;
+                sp++;
+                while (sp + 8 <= end && ((long) LONG_VIEW.get(sa, sp) & NON_ASCII_MASK) == 0) {
+                    for (int i = 0; i < 8; i++) {
+                        da[dp + i] = (char) sa[sp + i];
+                    }
+                    sp += 8;
+                    dp += 8;
+                }
+                continue;
+            }
+            int codepoint = decodeWellFormed(sa, sp, sl, b1);
+            if (codepoint < 0) {
+                long result = decodeSequence(src, sp - sBase, sl - sBase);
+                if (result == UNDERFLOW) {
+                    break;
+                }
+                codepoint = (int) result;
+                if (Character.isBmpCodePoint(codepoint)) {
+                    da[dp++] = (char) codepoint;
+                    sp += (int) (result >>> 32);
+                    continue;
+                }
+            }
+            if (codepoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                da[dp++] = (char) codepoint;
+                sp += sequenceLength(b1);
+            } else if (dl - dp >= 2) {
+                da[dp++] = Character.highSurrogate(codepoint);
+                da[dp++] = Character.lowSurrogate(codepoint);
+                sp += 4;
+            } else {
+                underflow = false;
+                break;
+            }
+        }
+        src.position(sp - sBase);
+        dst.position(dp - dBase);
+        return underflow;
+    }
+
+    /**
+     * 解码从 sp 开始的一个完整且合法的多字节序列，这是非 ASCII 文本中最常见的情况，因此不经过 decodeSequence 的逐项检查。
+     * 所有后续字节一次性检查，合法的范围通过解码后的值判断。
+     *
+     * @param src 源字节缓冲区
+     * @param sp  序列的起始位置
+     * @param sl  源字节缓冲区中有效数据的上界（不包含）
+     * @param b1  序列的第一个字节，必须为负值
+     * @return 解码得到的 Code Point，序列不完整或非法时返回 -1，由 decodeSequence 处理
+     */
+    private static int decodeWellFormed(ByteBuffer src, int sp, int sl, int b1) {
+        if ((b1 >> 4) == -2) {
+            // 1110xxxx 10xxxxxx 10xxxxxx，排除过长编码和代理区
+            if (sl - sp >= 3) {
+                int b2 = src.get(sp + 1);
+                int b3 = src.get(sp + 2);
+                int codepoint = ((b1 & 0x0f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3f);
+                if (((b2 & 0xc0) | (b3 & 0xc0) << 8) == 0x8080 && codepoint >= 0x800 && (codepoint & 0xf800) != 0xd800) {
+                    return codepoint;
+                }
+            }
+        } else if ((b1 >> 5) == -2) {
+            // 110xxxxx 10xxxxxx，排除过长编码
+            if (sl - sp >= 2) {
+                int b2 = src.get(sp + 1);
+                if ((b2 & 0xc0) == 0x80 && (b1 & 0x1e) != 0) {
+                    return ((b1 & 0x1f) << 6) | (b2 & 0x3f);
+                }
+            }
+        } else if ((b1 >> 3) == -2) {
+            // 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx，排除过长编码和超出 Unicode 范围的编码
+            if (sl - sp >= 4) {
+                int b2 = src.get(sp + 1);
+                int b3 = src.get(sp + 2);
+                int b4 = src.get(sp + 3);
+                int codepoint = ((b1 & 0x07) << 18) | ((b2 & 0x3f) << 12) | ((b3 & 0x3f) << 6) | (b4 & 0x3f);
+                if (((b2 & 0xc0) | (b3 & 0xc0) << 8 | (b4 & 0xc0) << 16) == 0x808080
+                        && codepoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT && codepoint <= Character.MAX_CODE_POINT) {
+                    return codepoint;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * decodeWellFormed(ByteBuffer, int, int, int) 直接读取 byte 数组的版本。
+     *
+     * @param sa 源字节数组
+     * @param sp 序列的起始下标
+     * @param sl 源字节数组中有效数据的上界（不包含）
+     * @param b1 序列的第一个字节，必须为负值
+     * @return 解码得到的 Code Point，序列不完整或非法时返回 -1，由 decodeSequence 处理
+     */
+    private static int decodeWellFormed(byte[] sa, int sp, int sl, int b1) {
+        if ((b1 >> 4) == -2) {
+            if (sl - sp >= 3) {
+                int b2 = sa[sp + 1];
+                int b3 = sa[sp + 2];
+                int codepoint = ((b1 & 0x0f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3f);
+                if (((b2 & 0xc0) | (b3 & 0xc0) << 8) == 0x8080 && codepoint >= 0x800 && (codepoint & 0xf800) != 0xd800) {
+                    return codepoint;
+                }
+            }
+        } else if ((b1 >> 5) == -2) {
+            if (sl - sp >= 2) {
+                int b2 = sa[sp + 1];
+                if ((b2 & 0xc0) == 0x80 && (b1 & 0x1e) != 0) {
+                    return ((b1 & 0x1f) << 6) | (b2 & 0x3f);
+                }
+            }
+        } else if ((b1 >> 3) == -2) {
+            if (sl - sp >= 4) {
+                int b2 = sa[sp + 1];
+                int b3 = sa[sp + 2];
+                int b4 = sa[sp + 3];
+                int codepoint = ((b1 & 0x07) << 18) | ((b2 & 0x3f) << 12) | ((b3 & 0x3f) << 6) | (b4 & 0x3f);
+                if (((b2 & 0xc0) | (b3 & 0xc0) << 8 | (b4 & 0xc0) << 16) == 0x808080
+                        && codepoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT && codepoint <= Character.MAX_CODE_POINT) {
+                    return codepoint;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 根据合法序列的第一个字节计算序列的长度。
+     *
+     * @param b1 序列的第一个字节，必须是合法的多字节序列的起始字节
+     * @return 序列的字节数
+     */
+    private static int sequenceLength(int b1) {
+        return (b1 >> 5) == -2 ? 2 : (b1 >> 4) == -2 ? 3 : 4;
+    }
+
+    /**
+     * 解码从 sp 开始的一个非 ASCII 序列。
+     *
+     * @param src 源字节缓冲区
+     * @param sp  序列的起始位置
+     * @param sl  源字节缓冲区中有效数据的上界（不包含）
+     * @return 剩余字节不足时返回 UNDERFLOW，否则高 32 位为消耗的字节数，低 32 位为 Code Point（非法输入为 U+FFFD）
+     */
+    private static long decodeSequence(ByteBuffer src, int sp, int sl) {
+        int b1 = src.get(sp);
+        int remaining = sl - sp;
+        if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) {
+            // 110xxxxx 10xxxxxx
+            if (remaining < 2) {
+                return UNDERFLOW;
+            }
+            int b2 = src.get(sp + 1);
+            if (isNotContinuation(b2)) {
+                return malformed(1);
+            }
+            return result(2, ((b1 & 0x1f) << 6) | (b2 & 0x3f));
+        } else if ((b1 >> 4) == -2) {
+            // 1110xxxx 10xxxxxx 10xxxxxx
+            if (remaining > 1 && isMalformed3(b1, src.get(sp + 1))) {
+                return malformed(1);
+            }
+            if (remaining < 3) {
+                return UNDERFLOW;
+            }
+            int b2 = src.get(sp + 1);
+            int b3 = src.get(sp + 2);
+            if (isNotContinuation(b3)) {
+                return malformed(2);
+            }
+            int codepoint = ((b1 & 0x0f) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3f);
+            // 代理区的 Code Point 不能出现在 UTF-8 中，整个序列作为一个非法输入
+            return Character.isSurrogate((char) codepoint) ? malformed(3) : result(3, codepoint);
+        } else if ((b1 >> 3) == -2) {
+            // 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+            int u1 = b1 & 0xff;
+            if (u1 > 0xf4 || remaining > 1 && isMalformed4(u1, src.get(sp + 1) & 0xff)) {
+                return malformed(1);
+            }
+            if (remaining > 2 && isNotContinuation(src.get(sp + 2))) {
+                return malformed(2);
+            }
+            if (remaining < 4) {
+                return UNDERFLOW;
+            }
+            if (isNotContinuation(src.get(sp + 3))) {
+                return malformed(3);
+            }
+            return result(4, ((b1 & 0x07) << 18) | ((src.get(sp + 1) & 0x3f) << 12) | ((src.get(sp + 2) & 0x3f) << 6) | (src.get(sp + 3) & 0x3f));
+        }
+        // 孤立的后续字节或非法的起始字节
+        return malformed(1);
+    }
+
+    /**
+     * 将消耗的字节数与 Code Point 打包为 decodeSequence 的返回值。
+     */
+    private static long result(int length, int codepoint) {
+        return ((long) length << 32) | codepoint;
+    }
+
+    /**
+     * 构造长度为 length 的非法输入对应的 decodeSequence 返回值。
+     */
+    private static long malformed(int length) {
+        return result(length, REPLACEMENT);
+    }
+
+    /**
+     * 判断字节是否不是 10xxxxxx 形式的后续字节。
+     */
+    private static boolean isNotContinuation(int b) {
+        return (b & 0xc0) != 0x80;
+    }
+
+    /**
+     * 判断三字节序列的前两个字节是否非法（包括过长编码）。
+     */
+    private static boolean isMalformed3(int b1, int b2) {
+        return (b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) || isNotContinuation(b2);
+    }
+
+    /**
+     * 判断四字节序列的前两个字节是否非法（包括过长编码和超出 Unicode 范围的编码），参数为无符号字节。
+     */
+    private static boolean isMalformed4(int b1, int b2) {
+        return (b1 == 0xf0 && (b2 < 0x90 || b2 > 0xbf))
+                || (b1 == 0xf4 && (b2 & 0xf0) != 0x80)
+                || isNotContinuation(b2);
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
 import com.github.zhitron.codepoint_loader.CodepointLoader;
 
 import java.nio.CharBuffer;
@@ -13,15 +14,19 @@ import java.util.Objects;
 public class CodepointLoaderByCharArray extends CodepointLoader {
     /**
      * 存储要读取的字符数据的数组。
-     * 该数组为 final 类型，确保其在对象生命周期内不可变。
      */
-    private final char[] input;
+    private char[] input;
 
     /**
      * 当前读取字符数组的位置偏移量。
      */
     private int offset = 0;
 
+    /**
+     * 要读取的字符在数组中的上界（不包含）。
+     */
+    private int end;
+
     /**
      * 构造函数，初始化字符数组和缓冲区大小。
      *
@@ -29,8 +34,76 @@ public class CodepointLoaderByCharArray extends CodepointLoader {
      * @param bufferSize 缓冲区的大小
      */
     public CodepointLoaderByCharArray(char[] input, int bufferSize) {
-        super(bufferSize);
-        this.input = Objects.requireNonNull(input, "The char[] cannot be null");
+        this(input, bufferSize, null);
+    }
+
+    /**
+     * 构造函数，初始化字符数组和缓冲区大小，并指定提供字符缓冲区的缓冲区池。
+     *
+     * @param input      提供 Unicode 字符的数据源
+     * @param bufferSize 缓冲区的大小
+     * @param pool       提供字符缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointLoaderByCharArray(char[] input, int bufferSize, BufferPool pool) {
+        this(Objects.requireNonNull(input, "The char[] cannot be null"), 0, input.length, bufferSize, pool);
+    }
+
+    /**
+     * 构造函数，只读取字符数组中 [offset, end) 范围内的字符。
+     *
+     * @param input      提供 Unicode 字符的数据源
+     * @param offset     起始下标
+     * @param end        结束下标（不包含）
+     * @param bufferSize 缓冲区的大小
+     * @param pool       提供字符缓冲区的缓冲区池，可以为 null
+     */
+    private CodepointLoaderByCharArray(char[] input, int offset, int end, int bufferSize, BufferPool pool) {
+        super(bufferSize, false, pool);
+        this.input = input;
+        this.offset = offset;
+        this.end = end;
+    }
+
+    /**
+     * 切换到新的字符数组，已分配的缓冲区会被保留。
+     *
+     * @param input 提供 Unicode 字符的数据源
+     */
+    public void reset(char[] input) {
+        Objects.requireNonNull(input, "The char[] cannot be null");
+        clearBuffers();
+        this.input = input;
+        this.offset = 0;
+        this.end = input.length;
+    }
+
+    /**
+     * 在靠近中间的位置切分剩余的字符，切分点不会落在代理对的中间。
+     *
+     * @return 加载前一部分字符的新加载器，无法切分时返回 null
+     */
+    @Override
+    protected CodepointLoader trySplit() {
+        int mid = offset + ((end - offset) >>> 1);
+        if (mid < end && Character.isLowSurrogate(input[mid]) && Character.isHighSurrogate(input[mid - 1])) {
+            mid++;
+        }
+        if (mid <= offset || mid >= end) {
+            return null;
+        }
+        CodepointLoader prefix = new CodepointLoaderByCharArray(input, offset, mid, getBufferSize(), getBufferPool());
+        offset = mid;
+        return prefix;
+    }
+
+    /**
+     * 以剩余的字符数作为估算值。
+     *
+     * @return 剩余的字符数
+     */
+    @Override
+    protected long estimateRemaining() {
+        return end - offset;
     }
 
     /**
@@ -42,7 +115,7 @@ public class CodepointLoaderByCharArray extends CodepointLoader {
     @Override
     protected void loadCharBuffer(CharBuffer charBuffer) {
         // 计算可读取的字符长度
-        int len = Math.min(charBuffer.remaining(), input.length - offset);
+        int len = Math.min(charBuffer.remaining(), end - offset);
 
         if (len <= 0) {
             return; // 没有剩余字符可加载
@@ -1,23 +1,28 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
 import com.github.zhitron.codepoint_loader.CodepointLoader;
+import com.github.zhitron.codepoint_loader.CodepointSourceLoader;
 
 import java.nio.CharBuffer;
 import java.util.Objects;
 
 /**
  * CodepointLoaderByCharBuffer 是一个基于 CharBuffer 的 Unicode Code Point 加载器实现类。
- * 该类通过封装一个只读的 CharBuffer 数据源，实现了从缓冲区中逐个读取 Unicode 字符（Code Point）的功能。
- * 它继承自 CodepointLoader 抽象类，并提供了具体的字符加载逻辑。
+ * 该类直接从 CharBuffer 数据源中组合 Unicode 字符（Code Point），不会经过内部的字符缓冲区。
+ * 它继承自 CodepointSourceLoader 抽象类，并提供了具体的 Code Point 加载逻辑。
+ *
+ * <p>数据源可以是堆缓冲区、直接缓冲区、只读缓冲区或它们的切片。
+ * 具有可访问底层数组的缓冲区直接读取数组，其它缓冲区通过绝对位置的 get 方法读取。
+ * 数据源的位置和界限在创建时确定，加载器不会修改数据源的位置，读取过程中不应修改数据源的内容。</p>
  *
  * @author zhitron
  */
-public class CodepointLoaderByCharBuffer extends CodepointLoader {
+public class CodepointLoaderByCharBuffer extends CodepointSourceLoader {
     /**
-     * 封装的字符数据源，用于提供 Unicode 字符数据。
-     * 该缓冲区为 final 类型，确保其在对象生命周期内不可变。
+     * 数据源 [position, limit) 范围的切片，其位置为下一个待读取的字符。
      */
-    private final CharBuffer input;
+    private CharBuffer input;
 
     /**
      * 构造函数，使用指定的 CharBuffer 和缓冲区大小初始化 CodepointLoaderByCharBuffer 实例。
@@ -26,38 +31,126 @@ public class CodepointLoaderByCharBuffer extends CodepointLoader {
      * @param bufferSize 缓冲区的大小，用于控制每次处理的数据量
      */
     public CodepointLoaderByCharBuffer(CharBuffer input, int bufferSize) {
-        super(bufferSize);
-        this.input = Objects.requireNonNull(input, "The CharBuffer cannot be null");
+        this(input, bufferSize, null);
     }
 
     /**
-     * 将数据源中的字符加载到目标 CharBuffer 中。
-     * 此方法负责从内部数据源 (this.data) 中复制字符到目标缓冲区 (charBuffer) 中，
-     * 以供后续解析 Unicode Code Point 使用。
+     * 构造函数，使用指定的 CharBuffer 和缓冲区大小初始化 CodepointLoaderByCharBuffer 实例，并指定缓冲区池。
+     * 该加载器不使用字符缓冲区，保留该参数是为了与其它加载器保持一致。
      *
-     * @param charBuffer 要加载数据的目标 CharBuffer
+     * @param input      提供原始字符数据的 CharBuffer
+     * @param bufferSize 缓冲区的大小，用于控制每次处理的数据量
+     * @param pool       缓冲区池，可以为 null
      */
-    @Override
-    protected void loadCharBuffer(CharBuffer charBuffer) {
-        // 计算可以复制的最大字符数，不超过两个缓冲区的剩余空间
-        int len = Math.min(charBuffer.remaining(), input.remaining());
-
-        // 如果没有更多字符可复制，则直接返回
-        if (len <= 0) {
-            return;
-        }
+    public CodepointLoaderByCharBuffer(CharBuffer input, int bufferSize, BufferPool pool) {
+        super(bufferSize, pool);
+        this.input = Objects.requireNonNull(input, "The CharBuffer cannot be null").slice();
+    }
 
-        // 获取源缓冲区和目标缓冲区的底层字符数组
-        char[] source = input.array();
-        char[] target = charBuffer.array();
+    /**
+     * 切换到新的字符数据源，已分配的缓冲区会被保留。
+     *
+     * @param input 提供原始字符数据的 CharBuffer
+     */
+    public void reset(CharBuffer input) {
+        Objects.requireNonNull(input, "The CharBuffer cannot be null");
+        clearBuffers();
+        this.input = input.slice();
+    }
 
-        // 获取当前数据源的位置作为复制的起始偏移量
+    /**
+     * 在靠近中间的位置切分剩余的字符，切分点不会落在代理对的中间。
+     *
+     * @return 加载前一部分字符的新加载器，无法切分时返回 null
+     */
+    @Override
+    protected CodepointLoader trySplit() {
         int offset = input.position();
+        int end = input.limit();
+        int mid = offset + ((end - offset) >>> 1);
+        if (mid < end && Character.isLowSurrogate(input.get(mid)) && Character.isHighSurrogate(input.get(mid - 1))) {
+            mid++;
+        }
+        if (mid <= offset || mid >= end) {
+            return null;
+        }
+        CodepointLoader prefix = new CodepointLoaderByCharBuffer(input.slice(offset, mid - offset), getBufferSize(), getBufferPool());
+        input.position(mid);
+        return prefix;
+    }
 
-        // 执行数组拷贝操作，将数据从源缓冲区复制到目标缓冲区
-        System.arraycopy(source, offset, target, 0, len);
+    /**
+     * 以剩余的字符数作为估算值。
+     *
+     * @return 剩余的字符数
+     */
+    @Override
+    protected long estimateRemaining() {
+        return input.remaining();
+    }
 
-        // 更新数据源的当前位置，反映已复制的字符数量
-        input.position(offset + len);
+    /**
+     * 直接从数据源中组合 Code Point 并写入目标数组，孤立的代理字符按原值返回。
+     * 数据源以高代理字符结束时，与其它加载器一样在读到该字符时抛出 IllegalStateException。
+     *
+     * @param buffer 要填充数据的目标 int 数组
+     * @param offset 目标数组中的起始下标
+     * @param length 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果数据源已经读完则返回 -1
+     * @throws IllegalStateException 如果数据源的最后一个字符是高代理字符
+     */
+    @Override
+    protected int loadCodepoints(int[] buffer, int offset, int length) {
+        CharBuffer input = this.input;
+        int position = input.position();
+        int limit = input.limit();
+        if (position >= limit) {
+            return -1;
+        }
+        int count = 0;
+        if (input.hasArray()) {
+            char[] array = input.array();
+            int base = input.arrayOffset();
+            int end = base + limit;
+            int i = base + position;
+            while (count < length && i < end) {
+                char c = array[i];
+                if (Character.isHighSurrogate(c)) {
+                    if (i + 1 == end) {
+                        break;
+                    }
+                    if (Character.isLowSurrogate(array[i + 1])) {
+                        buffer[offset + count++] = Character.toCodePoint(c, array[i + 1]);
+                        i += 2;
+                        continue;
+                    }
+                }
+                buffer[offset + count++] = c;
+                i++;
+            }
+            position = i - base;
+        } else {
+            while (count < length && position < limit) {
+                char c = input.get(position);
+                if (Character.isHighSurrogate(c)) {
+                    if (position + 1 == limit) {
+                        break;
+                    }
+                    if (Character.isLowSurrogate(input.get(position + 1))) {
+                        buffer[offset + count++] = Character.toCodePoint(c, input.get(position + 1));
+                        position += 2;
+                        continue;
+                    }
+                }
+                buffer[offset + count++] = c;
+                position++;
+            }
+        }
+        input.position(position);
+        if (count == 0) {
+            // 剩下的唯一一个字符是高代理字符，先返回之前的 Code Point，下一次读取时再报告错误
+            throw new IllegalStateException("Incomplete surrogate pair: high surrogate without low surrogate.");
+        }
+        return count;
     }
-}
\ No newline at end of file
+}
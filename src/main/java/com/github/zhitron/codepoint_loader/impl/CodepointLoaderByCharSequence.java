@@ -0,0 +1,142 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import com.github.zhitron.codepoint_loader.BufferPool;
+import com.github.zhitron.codepoint_loader.CodepointLoader;
+
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * 该类继承自CodepointLoader，用于从 CharSequence 加载 Unicode Code Point。
+ *
+ * <p>字符按缓冲区大小分块复制到字符缓冲区中，不会预先复制整个字符序列。
+ * 对于 String、StringBuilder 和 StringBuffer 使用 getChars 批量复制，其它字符序列逐个读取字符。
+ * 读取过程中不应修改字符序列。</p>
+ *
+ * @author zhitron
+ */
+public class CodepointLoaderByCharSequence extends CodepointLoader {
+    /**
+     * 提供字符数据的字符序列。
+     */
+    private CharSequence input;
+
+    /**
+     * 当前读取字符序列的位置偏移量。
+     */
+    private int offset;
+
+    /**
+     * 要读取的字符在字符序列中的上界（不包含）。
+     */
+    private int end;
+
+    /**
+     * 构造函数，初始化字符序列和缓冲区大小。
+     *
+     * @param input      提供 Unicode 字符的数据源
+     * @param bufferSize 缓冲区的大小
+     */
+    public CodepointLoaderByCharSequence(CharSequence input, int bufferSize) {
+        this(input, bufferSize, null);
+    }
+
+    /**
+     * 构造函数，初始化字符序列和缓冲区大小，并指定提供字符缓冲区的缓冲区池。
+     *
+     * @param input      提供 Unicode 字符的数据源
+     * @param bufferSize 缓冲区的大小
+     * @param pool       提供字符缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointLoaderByCharSequence(CharSequence input, int bufferSize, BufferPool pool) {
+        this(Objects.requireNonNull(input, "The CharSequence cannot be null"), 0, input.length(), bufferSize, pool);
+    }
+
+    /**
+     * 构造函数，只读取字符序列中 [offset, end) 范围内的字符。
+     *
+     * @param input      提供 Unicode 字符的数据源
+     * @param offset     起始下标
+     * @param end        结束下标（不包含）
+     * @param bufferSize 缓冲区的大小
+     * @param pool       提供字符缓冲区的缓冲区池，可以为 null
+     */
+    private CodepointLoaderByCharSequence(CharSequence input, int offset, int end, int bufferSize, BufferPool pool) {
+        super(bufferSize, false, pool);
+        this.input = input;
+        this.offset = offset;
+        this.end = end;
+    }
+
+    /**
+     * 切换到新的字符序列，已分配的缓冲区会被保留。
+     *
+     * @param input 提供 Unicode 字符的数据源
+     */
+    public void reset(CharSequence input) {
+        Objects.requireNonNull(input, "The CharSequence cannot be null");
+        clearBuffers();
+        this.input = input;
+        this.offset = 0;
+        this.end = input.length();
+    }
+
+    /**
+     * 在靠近中间的位置切分剩余的字符，切分点不会落在代理对的中间。
+     *
+     * @return 加载前一部分字符的新加载器，无法切分时返回 null
+     */
+    @Override
+    protected CodepointLoader trySplit() {
+        int mid = offset + ((end - offset) >>> 1);
+        if (mid < end && Character.isLowSurrogate(input.charAt(mid)) && Character.isHighSurrogate(input.charAt(mid - 1))) {
+            mid++;
+        }
+        if (mid <= offset || mid >= end) {
+            return null;
+        }
+        CodepointLoader prefix = new CodepointLoaderByCharSequence(input, offset, mid, getBufferSize(), getBufferPool());
+        offset = mid;
+        return prefix;
+    }
+
+    /**
+     * 以剩余的字符数作为估算值。
+     *
+     * @return 剩余的字符数
+     */
+    @Override
+    protected long estimateRemaining() {
+        return end - offset;
+    }
+
+    /**
+     * 将字符序列中的下一块数据复制到 CharBuffer 中。
+     *
+     * @param charBuffer 要填充数据的目标 CharBuffer
+     */
+    @Override
+    protected void loadCharBuffer(CharBuffer charBuffer) {
+        int len = Math.min(charBuffer.remaining(), end - offset);
+        if (len <= 0) {
+            return;
+        }
+        char[] dst = charBuffer.array();
+        int dstBegin = charBuffer.arrayOffset() + charBuffer.position();
+        int srcEnd = offset + len;
+        CharSequence input = this.input;
+        if (input instanceof String) {
+            ((String) input).getChars(offset, srcEnd, dst, dstBegin);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(offset, srcEnd, dst, dstBegin);
+        } else if (input instanceof StringBuffer) {
+            ((StringBuffer) input).getChars(offset, srcEnd, dst, dstBegin);
+        } else {
+            for (int i = offset; i < srcEnd; i++) {
+                dst[dstBegin++] = input.charAt(i);
+            }
+        }
+        charBuffer.position(charBuffer.position() + len);
+        offset = srcEnd;
+    }
+}
@@ -0,0 +1,326 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import com.github.zhitron.codepoint_loader.CodepointLoader;
+import com.github.zhitron.codepoint_loader.CodepointSourceLoader;
+
+import java.nio.IntBuffer;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CodepointLoaderByPipeline 是一个具体的实现类，以流水线的方式从另一个 CodepointLoader 加载 Unicode Code Point。
+ *
+ * <p>一个后台生产者线程不断从源加载器批量读取 Code Point，写入固定大小的 int[] 分块；
+ * 消费线程从分块中取出 Code Point。这样数据源的读取与解码和调用者的处理分别运行在不同的核心上。
+ * 逐个读取或预览时，填充完毕的分块整体交给加载器作为预读环形缓冲区，加载器原来的数组放回环形数组中供生产者复用，
+ * 因此 Code Point 不会再被复制一次。</p>
+ *
+ * <p>分块保存在一个容量为 2 的幂的环形数组中循环使用，生产者只写 tail，消费者只写 head，不使用锁。
+ * 环形数组已满时生产者挂起等待，从而限制预先解码的数据量；环形数组为空时消费者挂起等待。
+ * 源加载器只会被生产者线程访问，并在本加载器关闭时由其关闭。</p>
+ *
+ * @author zhitron
+ */
+public class CodepointLoaderByPipeline extends CodepointSourceLoader {
+    /**
+     * 默认的分块数量。
+     */
+    public static final int DEFAULT_CHUNKS = 4;
+
+    /**
+     * 关闭时每一轮等待生产者线程结束的最长时间。
+     */
+    private static final Duration JOIN_TIMEOUT = Duration.ofSeconds(1);
+
+    /**
+     * 提供 Code Point 的源加载器，只由生产者线程访问。
+     */
+    private final CodepointLoader source;
+
+    /**
+     * 循环使用的 Code Point 分块，长度都是不小于 chunkSize 的 2 的幂。
+     * 消费者持有 head 对应的分块时可以将其换成另一个同样长度的数组。
+     */
+    private final int[][] chunks;
+
+    /**
+     * 每个分块中有效 Code Point 的数量。
+     */
+    private final int[] sizes;
+
+    /**
+     * 生产者线程。
+     */
+    private final Thread producer;
+
+    /**
+     * 消费者下一个要读取的分块序号，只由消费线程修改。
+     */
+    private volatile long head;
+
+    /**
+     * 生产者下一个要写入的分块序号，只由生产者线程修改。
+     */
+    private volatile long tail;
+
+    /**
+     * 最近一次等待数据的消费线程，生产者发布分块后将其唤醒。
+     */
+    private volatile Thread consumer;
+
+    /**
+     * 标志位，指示生产者是否已经结束。
+     */
+    private volatile boolean done;
+
+    /**
+     * 标志位，指示加载器是否已经关闭。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 生产者读取时发生的异常，在消费者读完已发布的分块后抛出。
+     */
+    private volatile Throwable error;
+
+    /**
+     * 消费者在当前分块中的读取位置。
+     */
+    private int position;
+
+    /**
+     * 标志位，指示消费者是否正持有 head 对应的分块。
+     */
+    private boolean holding;
+
+    /**
+     * 构造函数，使用默认的分块数量创建流水线加载器，并立即启动生产者线程。
+     *
+     * @param source    提供 Code Point 的源加载器，不能为 null
+     * @param chunkSize 每个分块的大小，同时也是预览偏移量的上限，必须大于 0
+     */
+    public CodepointLoaderByPipeline(CodepointLoader source, int chunkSize) {
+        this(source, chunkSize, DEFAULT_CHUNKS);
+    }
+
+    /**
+     * 构造函数，创建流水线加载器，并立即启动生产者线程。
+     *
+     * @param source    提供 Code Point 的源加载器，不能为 null
+     * @param chunkSize 每个分块的大小，会向上取整为 2 的幂，同时也是预览偏移量的上限，必须大于 0
+     * @param chunks    分块的数量，会向上取整为 2 的幂，必须大于 1
+     */
+    public CodepointLoaderByPipeline(CodepointLoader source, int chunkSize, int chunks) {
+        super(chunkSize);
+        if (chunks <= 1) {
+            throw new IllegalArgumentException("chunks must be greater than 1");
+        }
+        this.source = Objects.requireNonNull(source, "The CodepointLoader cannot be null");
+        int capacity = Integer.highestOneBit(chunks - 1) << 1;
+        this.chunks = new int[capacity][Integer.highestOneBit(Math.max(chunkSize, 2) - 1) << 1];
+        this.sizes = new int[capacity];
+        this.producer = Thread.ofPlatform().daemon().name("codepoint-loader-pipeline").unstarted(this::produce);
+        this.producer.start();
+    }
+
+    /**
+     * 生产者线程的主循环，不断从源加载器读取 Code Point 并发布分块，直到源加载器读完、发生异常或加载器关闭。
+     */
+    private void produce() {
+        int mask = chunks.length - 1;
+        try {
+            while (!closed) {
+                long t = tail;
+                // 环形数组已满，等待消费者归还分块
+                if (t - head > mask) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                int index = (int) t & mask;
+                int count = source.read(chunks[index], 0, chunks[index].length);
+                if (count <= 0) {
+                    break;
+                }
+                sizes[index] = count;
+                tail = t + 1;
+                wakeConsumer();
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            done = true;
+            wakeConsumer();
+        }
+    }
+
+    /**
+     * 唤醒正在等待数据的消费线程。
+     */
+    private void wakeConsumer() {
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 实现父类的 loadCodepoints 方法，将当前分块中的 Code Point 复制到调用者的数组中，当前分块读完后归还并等待下一个分块。
+     * 该方法只用于批量读取到调用者的数组，逐个读取和预览通过 exchangeCodepoints 直接使用分块。
+     *
+     * @param buffer 要填充数据的目标 int 数组
+     * @param offset 目标数组中的起始下标
+     * @param length 最多写入的 Code Point 数量
+     * @return 实际写入的 Code Point 数量，如果已经读完则返回 -1
+     * @throws Exception 如果生产者读取时发生异常
+     */
+    @Override
+    protected int loadCodepoints(int[] buffer, int offset, int length) throws Exception {
+        if (!holdChunk()) {
+            return -1;
+        }
+        int index = (int) head & (chunks.length - 1);
+        int count = Math.min(length, sizes[index] - position);
+        System.arraycopy(chunks[index], position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * 将当前分块中尚未读取的 Code Point 连同分块数组一起交给加载器作为预读环形缓冲区，
+     * 并把加载器原来的数组放回环形数组中，供生产者写入之后的分块。
+     *
+     * @param buffer 加载器当前的预读环形缓冲区，尚未分配时为 null
+     * @return 包装当前分块中剩余 Code Point 的缓冲区，如果已经读完则返回没有剩余数据的缓冲区
+     * @throws Exception 如果生产者读取时发生异常
+     */
+    @Override
+    protected IntBuffer exchangeCodepoints(int[] buffer) throws Exception {
+        if (!holdChunk()) {
+            return IntBuffer.allocate(0);
+        }
+        int index = (int) head & (chunks.length - 1);
+        int[] chunk = chunks[index];
+        IntBuffer remaining = IntBuffer.wrap(chunk, position, sizes[index] - position);
+        // 长度不同的数组（例如放回 Code Point 时扩容的数组）不放回环形数组，以免生产者持有过大的内存
+        chunks[index] = buffer != null && buffer.length == chunk.length ? buffer : new int[chunk.length];
+        position = sizes[index];
+        return remaining;
+    }
+
+    /**
+     * 确保消费者持有一个还有剩余数据的分块，当前分块读完后归还并等待下一个分块。
+     *
+     * @return 如果持有还有剩余数据的分块则返回 true，如果已经读完则返回 false
+     * @throws Exception 如果生产者读取时发生异常
+     */
+    private boolean holdChunk() throws Exception {
+        if (holding && position == sizes[(int) head & (chunks.length - 1)]) {
+            holding = false;
+            // 生产者在看到 head 前移之后才会写入该分块，因此换入的数组对其可见
+            head = head + 1;
+            LockSupport.unpark(producer);
+        }
+        if (!holding) {
+            if (!awaitChunk()) {
+                return false;
+            }
+            holding = true;
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * 等待生产者发布 head 对应的分块。
+     *
+     * @return 如果有可读的分块则返回 true，如果生产者已经结束且没有更多分块则返回 false
+     * @throws Exception 如果生产者读取时发生异常
+     */
+    private boolean awaitChunk() throws Exception {
+        long h = head;
+        while (tail == h) {
+            if (done) {
+                // 生产者先发布分块再设置 done，需要再次检查 tail
+                if (tail != h) {
+                    break;
+                }
+                Throwable e = error;
+                if (e == null) {
+                    return false;
+                }
+                error = null;
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                throw (Exception) e;
+            }
+            if (closed) {
+                return false;
+            }
+            consumer = Thread.currentThread();
+            if (tail == h && !done) {
+                LockSupport.park(this);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止生产者线程并关闭源加载器。
+     *
+     * <p>先中断生产者线程，使其从等待和可中断的读取中返回，并最多等待 JOIN_TIMEOUT；
+     * 生产者仍阻塞在不可中断的读取中时，只关闭源加载器的数据源使读取返回，之后再最多等待 JOIN_TIMEOUT。
+     * 只有确认生产者已经结束后才完整关闭源加载器并归还其缓冲区；生产者仍未结束时它可能还在向这些缓冲区写入数据，
+     * 因此不会归还到缓冲区池，交由垃圾回收器处理。关闭不会无限期地阻塞。</p>
+     *
+     * @throws Exception 如果关闭源加载器时发生错误
+     */
+    @Override
+    public void close() throws Exception {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        boolean interrupted = false;
+        boolean terminated;
+        try {
+            terminated = producer.join(JOIN_TIMEOUT);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            terminated = !producer.isAlive();
+        }
+        try {
+            if (!terminated) {
+                closeInput(source);
+                terminated = interrupted ? !producer.isAlive() : producer.join(JOIN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            terminated = !producer.isAlive();
+        } finally {
+            try {
+                if (terminated) {
+                    source.close();
+                }
+            } finally {
+                releaseBuffers();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 中断生产者线程并只关闭源加载器的数据源，使包装本加载器的其它加载器可以解除阻塞在读取中的线程，不归还任何缓冲区。
+     *
+     * @throws Exception 如果关闭源加载器的数据源时发生错误
+     */
+    @Override
+    protected void closeInput() throws Exception {
+        producer.interrupt();
+        closeInput(source);
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
 import com.github.zhitron.codepoint_loader.CodepointLoader;
 
 import java.io.IOException;
@@ -17,9 +18,8 @@ import java.util.Objects;
 public class CodepointLoaderByReader extends CodepointLoader {
     /**
      * 数据源 Reader，用于读取字符数据。
-     * 该 Reader 为 final 类型，确保其在对象生命周期内不可变。
      */
-    private final Reader input;
+    private Reader input;
 
     /**
      * 构造函数，初始化具有指定 Reader 和缓冲区大小的 CodepointLoaderByReader。
@@ -28,10 +28,35 @@ public class CodepointLoaderByReader extends CodepointLoader {
      * @param bufferSize 缓冲区的大小
      */
     public CodepointLoaderByReader(Reader input, int bufferSize) {
-        super(bufferSize);
+        this(input, bufferSize, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定 Reader 和缓冲区大小的 CodepointLoaderByReader，并指定提供字符缓冲区的缓冲区池。
+     *
+     * @param input      提供字符数据的 Reader
+     * @param bufferSize 缓冲区的大小
+     * @param pool       提供字符缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointLoaderByReader(Reader input, int bufferSize, BufferPool pool) {
+        super(bufferSize, false, pool);
         this.input = Objects.requireNonNull(input, "The Reader cannot be null");
     }
 
+    /**
+     * 关闭当前的 Reader 并切换到新的 Reader，已分配的缓冲区会被保留。
+     *
+     * @param input 提供字符数据的 Reader
+     * @throws IOException 如果关闭当前的 Reader 时发生错误
+     */
+    public void reset(Reader input) throws IOException {
+        Objects.requireNonNull(input, "The Reader cannot be null");
+        clearBuffers();
+        Reader previous = this.input;
+        this.input = input;
+        previous.close();
+    }
+
     /**
      * 从 Reader 中加载字符数据到 CharBuffer 中。
      * 该方法由父类的 getCodepoint 方法触发，用于填充缓冲区以继续读取 Unicode Code Point。
@@ -58,12 +83,26 @@ public class CodepointLoaderByReader extends CodepointLoader {
     }
 
     /**
-     * 关闭底层的 Reader 并释放相关资源。
+     * 关闭底层的 Reader 并释放相关资源，包括归还来自缓冲区池的缓冲区。
      *
      * @throws Exception 如果关闭过程中发生错误，抛出此异常
      */
     @Override
     public void close() throws Exception {
+        try {
+            closeInput();
+        } finally {
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * 关闭底层的 Reader，不归还缓冲区。
+     *
+     * @throws IOException 如果关闭 Reader 时发生错误
+     */
+    @Override
+    protected void closeInput() throws IOException {
         input.close();
     }
 }
\ No newline at end of file
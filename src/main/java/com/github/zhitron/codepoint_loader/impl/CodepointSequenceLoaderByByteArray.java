@@ -1,62 +1,119 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
+import com.github.zhitron.codepoint_loader.CodepointLoader;
 import com.github.zhitron.codepoint_loader.CodepointSequenceLoader;
+import com.github.zhitron.codepoint_loader.DecodingEngine;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.Objects;
 
 /**
  * CodepointSequenceLoaderByByteArray 是一个具体的实现类，用于从字节数组加载 Unicode Code Point。
- * 它继承自抽象类 CodepointSequenceLoader，并实现了 loadData 方法以提供基于内存字节数组的读取逻辑。
+ * 它继承自抽象类 CodepointSequenceLoader，直接解码内存中的字节数组。
  *
- * <p>此类适用于已将数据加载到内存中的场景，通过偏移量控制数据的逐步读取。</p>
+ * <p>此类适用于已将数据加载到内存中的场景，字节数组被直接包装为解码缓冲区，不会产生任何复制。
+ * 对于 UTF-8 和单字节字符集，codepoints() 返回的流可以切分后并行处理。</p>
  *
  * @author zhitron
  */
 public class CodepointSequenceLoaderByByteArray extends CodepointSequenceLoader {
     /**
-     * 存储原始字节数据的数组。
-     * 该数组为 final 类型，确保其在对象生命周期内不可变。
+     * 构造函数，初始化具有指定字节数组、字符集和缓冲区大小的 CodepointSequenceLoaderByByteArray。
+     *
+     * @param input      要读取的原始字节数组，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
      */
-    private final byte[] input;
+    public CodepointSequenceLoaderByByteArray(byte[] input, Charset charset, int bufferSize) {
+        this(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
 
     /**
-     * 当前读取位置的偏移量，用于跟踪已读取的数据位置。
-     * 初始值为 0，表示从字节数组的起始位置开始读取。
+     * 构造函数，初始化具有指定字节数组、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByByteArray。
+     *
+     * @param input      要读取的原始字节数组，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
      */
-    private int offset = 0;
+    public CodepointSequenceLoaderByByteArray(byte[] input, Charset charset, int bufferSize, DecodingEngine engine) {
+        this(input, charset, bufferSize, engine, null);
+    }
 
     /**
-     * 构造函数，初始化具有指定字节数组、字符集和缓冲区大小的 CodepointSequenceLoaderByByteArray。
+     * 构造函数，初始化具有指定字节数组、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByByteArray，
+     * 并指定提供字符缓冲区的缓冲区池。
      *
      * @param input      要读取的原始字节数组，不能为 null
      * @param charset    用于解码字节数据的字符集，不能为 null
      * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param pool       提供字符缓冲区的缓冲区池，为 null 时直接分配
      */
-    public CodepointSequenceLoaderByByteArray(byte[] input, Charset charset, int bufferSize) {
-        super(charset, bufferSize);
-        this.input = Objects.requireNonNull(input, "The byte[] cannot be null");
+    public CodepointSequenceLoaderByByteArray(byte[] input, Charset charset, int bufferSize, DecodingEngine engine, BufferPool pool) {
+        this(input, charset, bufferSize, engine, CodingErrorAction.REPLACE, pool);
     }
 
     /**
-     * 实现父类的 loadData 方法，从字节数组中读取数据并填充到目标缓冲区。
+     * 构造函数，初始化具有指定字节数组、字符集、缓冲区大小、解码引擎和错误输入处理方式的 CodepointSequenceLoaderByByteArray，
+     * 并指定提供字符缓冲区的缓冲区池。
      *
-     * <p>该方法根据当前偏移量计算可读取的字节长度，
-     * 然后使用 System.arraycopy 将数据复制到目标缓冲区，
-     * 并更新偏移量以准备下一次读取。</p>
+     * @param input                要读取的原始字节数组，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param engine               解码引擎，不能为 null
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param pool                 提供字符缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByByteArray(byte[] input, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction malformedInputAction, BufferPool pool) {
+        this(ByteBuffer.wrap(Objects.requireNonNull(input, "The byte[] cannot be null")), charset, bufferSize, engine, malformedInputAction, pool);
+    }
+
+    /**
+     * 构造函数，直接解码给定字节缓冲区中 [position, limit) 范围内的数据。
      *
-     * @param buffer 要填充数据的目标 byte 数组
-     * @return 实际读取的字节数，如果到达字节数组末尾则返回 -1
+     * @param input      要读取的字节缓冲区，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param action     遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param pool       提供字符缓冲区的缓冲区池，可以为 null
+     */
+    private CodepointSequenceLoaderByByteArray(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction action, BufferPool pool) {
+        super(input, charset, bufferSize, engine, action, pool);
+    }
+
+    /**
+     * 切换到新的字节数组，已分配的缓冲区会被保留，解码器的状态会被重置。
+     *
+     * @param input 要读取的原始字节数组，不能为 null
+     */
+    public void reset(byte[] input) {
+        clearBuffers(ByteBuffer.wrap(Objects.requireNonNull(input, "The byte[] cannot be null")));
+    }
+
+    /**
+     * 在字符边界处切分尚未解码的字节，返回加载前一部分字节的新加载器。
+     *
+     * @return 加载前一部分数据的新加载器，无法切分时返回 null
      */
     @Override
-    protected int loadData(byte[] buffer) {
-        int len = Math.min(buffer.length, input.length - offset);
-        if (len <= 0) {
-            return -1; // 表示没有更多数据可读
-        }
+    protected CodepointLoader trySplit() {
+        ByteBuffer prefix = splitByteBuffer();
+        return prefix == null ? null : new CodepointSequenceLoaderByByteArray(prefix, getCharset(), getBufferSize(), getEngine(), getMalformedInputAction(), getBufferPool());
+    }
 
-        System.arraycopy(input, offset, buffer, 0, len);
-        offset += len;
-        return len;
+    /**
+     * 窗口模式的加载器通过 loadWindow 获得数据，不会调用该方法。
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
+     * @return 始终返回 -1
+     */
+    @Override
+    protected int loadData(ByteBuffer buffer) {
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import com.github.zhitron.codepoint_loader.BufferPool;
+import com.github.zhitron.codepoint_loader.CodepointLoader;
+import com.github.zhitron.codepoint_loader.CodepointSequenceLoader;
+import com.github.zhitron.codepoint_loader.DecodingEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+/**
+ * CodepointSequenceLoaderByByteBuffer 是一个具体的实现类，用于从 ByteBuffer 加载 Unicode Code Point。
+ * 它继承自抽象类 CodepointSequenceLoader，直接解码给定缓冲区中 [position, limit) 范围内的字节。
+ *
+ * <p>数据源可以是堆缓冲区、直接缓冲区、只读缓冲区或它们的切片，缓冲区被直接作为解码缓冲区使用，不会产生任何复制。
+ * 对于堆外内存段，可以通过 MemorySegment.asByteBuffer() 得到不复制数据的视图后传入。
+ * 数据源的位置和界限在创建时确定，加载器不会修改数据源的位置，读取过程中不应修改数据源的内容。
+ * 对于 UTF-8 和单字节字符集，codepoints() 返回的流可以切分后并行处理。</p>
+ *
+ * @author zhitron
+ */
+public class CodepointSequenceLoaderByByteBuffer extends CodepointSequenceLoader {
+    /**
+     * 构造函数，初始化具有指定字节缓冲区、字符集和缓冲区大小的 CodepointSequenceLoaderByByteBuffer。
+     *
+     * @param input      要读取的字节缓冲区，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     */
+    public CodepointSequenceLoaderByByteBuffer(ByteBuffer input, Charset charset, int bufferSize) {
+        this(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
+
+    /**
+     * 构造函数，初始化具有指定字节缓冲区、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByByteBuffer。
+     *
+     * @param input      要读取的字节缓冲区，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     */
+    public CodepointSequenceLoaderByByteBuffer(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine) {
+        this(input, charset, bufferSize, engine, CodingErrorAction.REPLACE, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定字节缓冲区、字符集、缓冲区大小、解码引擎和错误输入处理方式的 CodepointSequenceLoaderByByteBuffer，
+     * 并指定提供字符缓冲区的缓冲区池。
+     *
+     * @param input                要读取的字节缓冲区，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param engine               解码引擎，不能为 null
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param pool                 提供字符缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByByteBuffer(ByteBuffer input, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction malformedInputAction, BufferPool pool) {
+        super(input, charset, bufferSize, engine, malformedInputAction, pool);
+    }
+
+    /**
+     * 切换到新的字节缓冲区，已分配的缓冲区会被保留，解码器的状态会被重置。
+     *
+     * @param input 要读取的字节缓冲区，不能为 null
+     */
+    public void reset(ByteBuffer input) {
+        clearBuffers(Objects.requireNonNull(input, "The ByteBuffer cannot be null"));
+    }
+
+    /**
+     * 在字符边界处切分尚未解码的字节，返回加载前一部分字节的新加载器。
+     *
+     * @return 加载前一部分数据的新加载器，无法切分时返回 null
+     */
+    @Override
+    protected CodepointLoader trySplit() {
+        ByteBuffer prefix = splitByteBuffer();
+        return prefix == null ? null : new CodepointSequenceLoaderByByteBuffer(prefix, getCharset(), getBufferSize(), getEngine(), getMalformedInputAction(), getBufferPool());
+    }
+
+    /**
+     * 窗口模式的加载器通过 loadWindow 获得数据，不会调用该方法。
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
+     * @return 始终返回 -1
+     */
+    @Override
+    protected int loadData(ByteBuffer buffer) {
+        return -1;
+    }
+}
@@ -1,10 +1,14 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
 import com.github.zhitron.codepoint_loader.CodepointSequenceLoader;
+import com.github.zhitron.codepoint_loader.DecodingEngine;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.Objects;
 
 /**
@@ -18,9 +22,24 @@ import java.util.Objects;
 public class CodepointSequenceLoaderByInputStream extends CodepointSequenceLoader {
     /**
      * 封装的 InputStream 实例，用于按需读取字节数据。
-     * 该流在对象生命周期内保持打开状态，直到调用 close 方法显式关闭。
+     * 该流在对象生命周期内保持打开状态，直到调用 close 或 reset 方法显式关闭。
      */
-    private final InputStream input;
+    private InputStream input;
+
+    /**
+     * 后台预读器，未启用预读时为 null。
+     */
+    private Prefetcher prefetcher;
+
+    /**
+     * 后台预读器每次读取的字节数。
+     */
+    private final int prefetchSize;
+
+    /**
+     * 字节缓冲区没有可访问的底层数组时，从输入流读取数据所使用的临时数组，按字节缓冲区的容量分配一次。
+     */
+    private byte[] staging;
 
     /**
      * 构造函数，初始化具有指定 InputStream、字符集和缓冲区大小的 CodepointSequenceLoaderByInputStream。
@@ -30,29 +49,183 @@ public class CodepointSequenceLoaderByInputStream extends CodepointSequenceLoade
      * @param bufferSize 字符缓冲区的大小，必须大于 0
      */
     public CodepointSequenceLoaderByInputStream(InputStream input, Charset charset, int bufferSize) {
-        super(charset, bufferSize);
+        this(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
+
+    /**
+     * 构造函数，初始化具有指定 InputStream、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByInputStream。
+     *
+     * @param input      用于读取字节数据的 InputStream，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     */
+    public CodepointSequenceLoaderByInputStream(InputStream input, Charset charset, int bufferSize, DecodingEngine engine) {
+        this(input, charset, bufferSize, engine, false);
+    }
+
+    /**
+     * 构造函数，初始化具有指定 InputStream、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByInputStream，并指定是否启用预读。
+     *
+     * <p>启用预读时，一个虚拟线程会在后台读取下一段字节数据，使高延迟的读取与消费线程的解码重叠进行。
+     * 此时输入流只会被后台线程读取。</p>
+     *
+     * @param input      用于读取字节数据的 InputStream，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param prefetch   是否在后台线程中预读字节数据
+     */
+    public CodepointSequenceLoaderByInputStream(InputStream input, Charset charset, int bufferSize, DecodingEngine engine, boolean prefetch) {
+        this(input, charset, bufferSize, engine, prefetch, null);
+    }
+
+    /**
+     * 构造函数，初始化具有指定 InputStream、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByInputStream，并指定是否启用预读和提供缓冲区的缓冲区池。
+     *
+     * <p>启用预读时，一个虚拟线程会在后台读取下一段字节数据，使高延迟的读取与消费线程的解码重叠进行。
+     * 此时输入流只会被后台线程读取。</p>
+     *
+     * @param input      用于读取字节数据的 InputStream，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param prefetch   是否在后台线程中预读字节数据
+     * @param pool       提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByInputStream(InputStream input, Charset charset, int bufferSize, DecodingEngine engine, boolean prefetch, BufferPool pool) {
+        this(input, charset, bufferSize, bufferSize << 2, engine, false, CodingErrorAction.REPLACE, prefetch, pool);
+    }
+
+    /**
+     * 构造函数，分别指定字符缓冲区和字节缓冲区的大小、解码引擎、字节缓冲区的类型、错误输入的处理方式、是否启用预读和提供缓冲区的缓冲区池。
+     *
+     * <p>启用预读时，后台线程每次读取的字节数约为字节缓冲区的大小，读取完毕的缓冲区直接交给解码器使用。</p>
+     *
+     * @param input                用于读取字节数据的 InputStream，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param byteBufferSize       字节缓冲区的大小，必须不小于 {@link CodepointSequenceLoader#MIN_BYTE_BUFFER_SIZE}
+     * @param engine               解码引擎，不能为 null
+     * @param directBuffer         是否使用直接缓冲区作为字节缓冲区
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param prefetch             是否在后台线程中预读字节数据
+     * @param pool                 提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByInputStream(InputStream input, Charset charset, int bufferSize, int byteBufferSize, DecodingEngine engine, boolean directBuffer, CodingErrorAction malformedInputAction, boolean prefetch, BufferPool pool) {
+        super(charset, bufferSize, byteBufferSize, engine, directBuffer, malformedInputAction, pool);
         this.input = Objects.requireNonNull(input, "The InputStream cannot be null");
+        this.prefetchSize = byteBufferSize;
+        this.prefetcher = prefetch ? Prefetcher.start(buffer -> readArray(input, buffer), byteBufferSize, false, pool) : null;
+    }
+
+    /**
+     * 关闭当前的 InputStream 并切换到新的 InputStream，已分配的缓冲区会被保留，解码器的状态会被重置。
+     * 启用预读时会为新的输入流启动新的后台线程。
+     *
+     * @param input 用于读取字节数据的 InputStream，不能为 null
+     * @throws IOException 如果关闭当前的 InputStream 时发生错误
+     */
+    public void reset(InputStream input) throws IOException {
+        Objects.requireNonNull(input, "The InputStream cannot be null");
+        closeInput();
+        clearBuffers();
+        this.input = input;
+        if (prefetcher != null) {
+            prefetcher = Prefetcher.start(buffer -> readArray(input, buffer), prefetchSize, false, getBufferPool());
+        }
     }
 
     /**
-     * 实现父类的 loadData 方法，从封装的 InputStream 中读取字节数据并填充到提供的 byte 数组中。
+     * 启用预读时，用后台线程填充完毕的缓冲区替换当前的解码缓冲区，不复制已读取的字节数据；
+     * 未启用预读时返回当前缓冲区，由 loadData 读取数据。
      *
-     * @param buffer 要填充数据的目标 byte 数组
+     * @param buffer 当前的解码缓冲区
+     * @return 替换后的缓冲区、当前缓冲区本身，或者在到达数据源末尾时返回 null
+     * @throws IOException 如果后台线程读取时发生 I/O 错误
+     */
+    @Override
+    protected ByteBuffer exchangeByteBuffer(ByteBuffer buffer) throws IOException {
+        return prefetcher != null ? prefetcher.exchange(buffer) : buffer;
+    }
+
+    /**
+     * 实现父类的 loadData 方法，从封装的 InputStream 中读取字节数据，直接写入提供的 ByteBuffer 的底层数组中。
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
      * @return 实际读取的字节数，如果到达输入流末尾则返回 -1
      * @throws IOException 如果读取过程中发生 I/O 错误
      */
     @Override
-    protected int loadData(byte[] buffer) throws IOException {
-        return input.read(buffer);
+    protected int loadData(ByteBuffer buffer) throws IOException {
+        if (!buffer.hasArray()) {
+            return readStaging(buffer);
+        }
+        return readArray(input, buffer);
+    }
+
+    /**
+     * 从输入流读取字节数据到临时数组中，再写入没有可访问底层数组的字节缓冲区，例如直接缓冲区。
+     * 临时数组按字节缓冲区的容量分配，只有在容量增大时才会重新分配。
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
+     * @return 实际读取的字节数，如果到达输入流末尾则返回 -1
+     * @throws IOException 如果读取过程中发生 I/O 错误
+     */
+    private int readStaging(ByteBuffer buffer) throws IOException {
+        byte[] array = staging;
+        if (array == null || array.length < buffer.capacity()) {
+            array = staging = new byte[buffer.capacity()];
+        }
+        int len = input.read(array, 0, Math.min(buffer.remaining(), array.length));
+        if (len > 0) {
+            buffer.put(array, 0, len);
+        }
+        return len;
+    }
+
+    /**
+     * 从给定的 InputStream 中读取字节数据，直接写入给定的堆缓冲区的底层数组中。
+     * 预读线程绑定创建时的输入流，reset 之后不会读到新的输入流。
+     *
+     * @param input  要读取的 InputStream
+     * @param buffer 要填充数据的目标 ByteBuffer，必须具有可访问的底层数组
+     * @return 实际读取的字节数，如果到达输入流末尾则返回 -1
+     * @throws IOException 如果读取过程中发生 I/O 错误
+     */
+    private static int readArray(InputStream input, ByteBuffer buffer) throws IOException {
+        int len = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (len > 0) {
+            buffer.position(buffer.position() + len);
+        }
+        return len;
     }
 
     /**
-     * 实现 Closeable 接口的 close 方法，用于关闭封装的 InputStream。
+     * 实现 Closeable 接口的 close 方法，停止预读、关闭封装的 InputStream 并归还来自缓冲区池的缓冲区。
      *
      * @throws IOException 如果关闭过程中发生 I/O 错误
      */
     @Override
     public void close() throws IOException {
-        input.close();
+        try {
+            closeInput();
+        } finally {
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * 停止预读并关闭当前的数据源，不归还缓冲区。
+     *
+     * @throws IOException 如果关闭过程中发生 I/O 错误
+     */
+    @Override
+    protected void closeInput() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.close(input);
+        } else {
+            input.close();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import com.github.zhitron.codepoint_loader.CodepointLoader;
+import com.github.zhitron.codepoint_loader.CodepointSequenceLoader;
+import com.github.zhitron.codepoint_loader.DecodingEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * CodepointSequenceLoaderByMappedFile 是一个具体的实现类，通过内存映射从文件加载 Unicode Code Point。
+ * 它继承自抽象类 CodepointSequenceLoader，直接解码 FileChannel.map 映射的文件区域。
+ *
+ * <p>文件按窗口以只读方式映射到内存中，解码不再产生读取系统调用和数据复制，适合反复扫描的大文件。
+ * 文件偏移使用 long 表示，每个窗口不超过 Integer.MAX_VALUE 字节，因此文件大小不受 2 GB 的限制。
+ * 同一时刻只保留一个窗口的映射，切换窗口和调用 close 时会立即解除映射并关闭文件通道。
+ * 立即解除映射依赖 jdk.unsupported 模块中的 sun.misc.Unsafe#invokeCleaner；运行环境不提供该方法时会输出一条警告，
+ * 映射改为在缓冲区被垃圾回收后才解除，在此之前文件在某些系统上无法被删除或截断。</p>
+ *
+ * <p>也可以只加载文件中的一个字节区间，区间的起止位置需要由调用者对齐到字符边界，
+ * 参见 {@link com.github.zhitron.codepoint_loader.CodepointLoaderFactory#split}。</p>
+ *
+ * @author zhitron
+ */
+public class CodepointSequenceLoaderByMappedFile extends CodepointSequenceLoader {
+    /**
+     * 默认的映射窗口大小，1 GB。
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    /**
+     * 被映射的文件通道，在 close 之前保持打开以便映射后续窗口。
+     */
+    private final FileChannel channel;
+
+    /**
+     * 标志位，指示关闭时是否同时关闭文件通道。切分产生的加载器与原加载器共享文件通道，不负责关闭它。
+     */
+    private final boolean ownsChannel;
+
+    /**
+     * 要加载的字节区间在文件中的结束偏移（不包含）。
+     */
+    private final long end;
+
+    /**
+     * 每个映射窗口的最大字节数。
+     */
+    private final int windowSize;
+
+    /**
+     * 当前窗口在文件中的起始偏移。
+     */
+    private long windowStart;
+
+    /**
+     * 当前映射的窗口，关闭后为 null。
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * 构造函数，初始化具有指定文件、字符集和缓冲区大小的 CodepointSequenceLoaderByMappedFile。
+     *
+     * @param input      要读取的文件路径，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public CodepointSequenceLoaderByMappedFile(Path input, Charset charset, int bufferSize) throws IOException {
+        this(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
+
+    /**
+     * 构造函数，初始化具有指定文件、字符集、缓冲区大小和解码引擎的 CodepointSequenceLoaderByMappedFile。
+     *
+     * @param input      要读取的文件路径，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public CodepointSequenceLoaderByMappedFile(Path input, Charset charset, int bufferSize, DecodingEngine engine) throws IOException {
+        this(input, charset, bufferSize, engine, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 构造函数，初始化具有指定文件、字符集、缓冲区大小、解码引擎和映射窗口大小的 CodepointSequenceLoaderByMappedFile。
+     *
+     * @param input      要读取的文件路径，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param windowSize 每个映射窗口的最大字节数，必须不小于 16
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public CodepointSequenceLoaderByMappedFile(Path input, Charset charset, int bufferSize, DecodingEngine engine, int windowSize) throws IOException {
+        this(input, charset, bufferSize, engine, CodingErrorAction.REPLACE, windowSize);
+    }
+
+    /**
+     * 构造函数，初始化具有指定文件、字符集、缓冲区大小、解码引擎、错误输入处理方式和映射窗口大小的 CodepointSequenceLoaderByMappedFile。
+     *
+     * @param input                要读取的文件路径，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param engine               解码引擎，不能为 null
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param windowSize           每个映射窗口的最大字节数，必须不小于 16
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public CodepointSequenceLoaderByMappedFile(Path input, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction malformedInputAction, int windowSize) throws IOException {
+        this(open(input, 0, 0, windowSize), 0, Long.MAX_VALUE, charset, bufferSize, engine, malformedInputAction, windowSize);
+    }
+
+    /**
+     * 构造函数，初始化只加载文件中指定字节区间的 CodepointSequenceLoaderByMappedFile。
+     * 超出文件末尾的部分会被忽略。
+     *
+     * @param input      要读取的文件路径，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param position   区间在文件中的起始偏移，必须是字符的起始字节，不能小于 0
+     * @param length     区间的字节数，不能小于 0
+     * @throws IOException 如果打开或映射文件失败
+     */
+    public CodepointSequenceLoaderByMappedFile(Path input, Charset charset, int bufferSize, DecodingEngine engine, long position, long length) throws IOException {
+        this(open(input, position, length, DEFAULT_WINDOW_SIZE), position, length > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + length,
+                charset, bufferSize, engine, CodingErrorAction.REPLACE, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 构造函数，映射文件通道中从 position 开始的第一个窗口。
+     */
+    private CodepointSequenceLoaderByMappedFile(FileChannel channel, long position, long end, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction action, int windowSize) throws IOException {
+        this(channel, true, map(channel, position, end, windowSize), position, end, charset, bufferSize, engine, action, windowSize);
+    }
+
+    /**
+     * 构造函数，以给定的第一个窗口初始化加载器。
+     */
+    private CodepointSequenceLoaderByMappedFile(FileChannel channel, boolean ownsChannel, MappedByteBuffer window, long position, long end, Charset charset, int bufferSize, DecodingEngine engine, CodingErrorAction action, int windowSize) throws IOException {
+        super(window, charset, bufferSize, engine, action, null);
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.end = Math.min(end, channel.size());
+        this.windowSize = windowSize;
+        this.windowStart = position;
+        this.window = window;
+    }
+
+    /**
+     * 检查参数并以只读方式打开文件通道。
+     *
+     * @param input      要映射的文件路径，不能为 null
+     * @param position   区间在文件中的起始偏移
+     * @param length     区间的字节数
+     * @param windowSize 每个映射窗口的最大字节数
+     * @return 打开的文件通道
+     * @throws IOException 如果打开文件失败
+     */
+    private static FileChannel open(Path input, long position, long length, int windowSize) throws IOException {
+        Objects.requireNonNull(input, "The Path cannot be null");
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("position and length cannot be negative");
+        }
+        if (windowSize < 16) {
+            throw new IllegalArgumentException("windowSize must be at least 16");
+        }
+        return FileChannel.open(input, StandardOpenOption.READ);
+    }
+
+    /**
+     * 以只读方式映射文件通道中从 position 开始的一个窗口，失败时关闭文件通道。
+     *
+     * @param channel    文件通道
+     * @param position   窗口在文件中的起始偏移
+     * @param end        区间在文件中的结束偏移（不包含），超出文件末尾的部分会被忽略
+     * @param windowSize 窗口的最大字节数
+     * @return 映射的文件区域
+     * @throws IOException 如果映射文件失败
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long end, int windowSize) throws IOException {
+        try {
+            long length = Math.max(0, Math.min(Math.min(end, channel.size()) - position, windowSize));
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 解除当前窗口的映射，并从其末尾尚未解码的字节处映射下一个窗口。
+     *
+     * @param remaining 当前窗口末尾尚未解码的字节数
+     * @return 下一个窗口，如果已到达文件末尾或加载器已关闭则返回 null
+     * @throws IOException 如果映射文件失败
+     */
+    @Override
+    protected ByteBuffer loadWindow(int remaining) throws IOException {
+        if (window == null) {
+            return null;
+        }
+        long next = windowStart + window.capacity() - remaining;
+        if (windowStart + window.capacity() >= end || next <= windowStart) {
+            return null;
+        }
+        discardByteBuffer();
+        MappedByteBuffer previous = window;
+        window = null;
+        MappedBuffers.unmap(previous);
+        window = map(channel, next, end, windowSize);
+        windowStart = next;
+        return window;
+    }
+
+    /**
+     * 以文件中尚未解码的字节数作为估算值。
+     *
+     * @return 估算的剩余数量
+     */
+    @Override
+    protected long estimateRemaining() {
+        return window == null ? 0 : end - windowStart - window.capacity() + super.estimateRemaining();
+    }
+
+    /**
+     * 在当前窗口内的字符边界处切分尚未解码的字节，前一部分由一个独立映射的新加载器加载。
+     * 前一部分不会超出当前窗口，因此新加载器只需要映射一次，并且不会关闭共享的文件通道。
+     *
+     * @return 加载前一部分数据的新加载器，无法切分时返回 null
+     */
+    @Override
+    protected CodepointLoader trySplit() {
+        if (window == null) {
+            return null;
+        }
+        ByteBuffer prefix = splitByteBuffer();
+        if (prefix == null) {
+            return null;
+        }
+        // 解码缓冲区是整个窗口的切片，其下标即为窗口内的偏移
+        long position = windowStart + prefix.position();
+        long end = windowStart + prefix.limit();
+        try {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+            return new CodepointSequenceLoaderByMappedFile(channel, false, window, position, end, getCharset(), getBufferSize(), getEngine(), getMalformedInputAction(), windowSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error to map byte data", e);
+        }
+    }
+
+    /**
+     * 立即解除当前窗口的映射并关闭文件通道。
+     *
+     * @throws Exception 如果关闭文件通道失败
+     */
+    @Override
+    public void close() throws Exception {
+        if (window != null) {
+            discardByteBuffer();
+            MappedByteBuffer previous = window;
+            window = null;
+            MappedBuffers.unmap(previous);
+        }
+        try {
+            closeInput();
+        } finally {
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * 只关闭文件通道，当前窗口保持映射，直到调用 close。
+     *
+     * @throws IOException 如果关闭文件通道失败
+     */
+    @Override
+    protected void closeInput() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 窗口模式的加载器通过 loadWindow 获得数据，不会调用该方法。
+     *
+     * @param buffer 要填充数据的目标 ByteBuffer
+     * @return 始终返回 -1
+     */
+    @Override
+    protected int loadData(ByteBuffer buffer) {
+        return -1;
+    }
+}
@@ -1,11 +1,14 @@
 package com.github.zhitron.codepoint_loader.impl;
 
+import com.github.zhitron.codepoint_loader.BufferPool;
 import com.github.zhitron.codepoint_loader.CodepointSequenceLoader;
+import com.github.zhitron.codepoint_loader.DecodingEngine;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.Objects;
 
 /**
@@ -20,9 +23,18 @@ import java.util.Objects;
 public class CodepointSequenceLoaderByReadableByteChannel extends CodepointSequenceLoader {
     /**
      * 数据输入源，类型为 ReadableByteChannel，用于从底层数据源读取字节。
-     * 该字段为 final 类型，确保其在对象生命周期内不可变。
      */
-    private final ReadableByteChannel input;
+    private ReadableByteChannel input;
+
+    /**
+     * 后台预读器，未启用预读时为 null。
+     */
+    private Prefetcher prefetcher;
+
+    /**
+     * 后台预读器每次读取的字节数。
+     */
+    private final int prefetchSize;
 
     /**
      * 构造函数，创建一个基于 ReadableByteChannel 的 CodepointSequenceLoader。
@@ -32,35 +44,149 @@ public class CodepointSequenceLoaderByReadableByteChannel extends CodepointSeque
      * @param bufferSize 字符缓冲区的大小，必须大于 0
      */
     public CodepointSequenceLoaderByReadableByteChannel(ReadableByteChannel input, Charset charset, int bufferSize) {
-        super(charset, bufferSize);
+        this(input, charset, bufferSize, DecodingEngine.CHARSET_DECODER);
+    }
+
+    /**
+     * 构造函数，创建一个基于 ReadableByteChannel 的 CodepointSequenceLoader，并指定解码引擎。
+     *
+     * @param input      数据输入通道，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     */
+    public CodepointSequenceLoaderByReadableByteChannel(ReadableByteChannel input, Charset charset, int bufferSize, DecodingEngine engine) {
+        this(input, charset, bufferSize, engine, false);
+    }
+
+    /**
+     * 构造函数，创建一个基于 ReadableByteChannel 的 CodepointSequenceLoader，并指定解码引擎和是否启用预读。
+     *
+     * <p>启用预读时，一个虚拟线程会在后台读取下一段字节数据，使高延迟的读取与消费线程的解码重叠进行。
+     * 此时通道只会被后台线程读取。</p>
+     *
+     * @param input      数据输入通道，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param prefetch   是否在后台线程中预读字节数据
+     */
+    public CodepointSequenceLoaderByReadableByteChannel(ReadableByteChannel input, Charset charset, int bufferSize, DecodingEngine engine, boolean prefetch) {
+        this(input, charset, bufferSize, engine, prefetch, null);
+    }
+
+    /**
+     * 构造函数，创建一个基于 ReadableByteChannel 的 CodepointSequenceLoader，并指定解码引擎、是否启用预读和提供缓冲区的缓冲区池。
+     *
+     * <p>启用预读时，一个虚拟线程会在后台读取下一段字节数据，使高延迟的读取与消费线程的解码重叠进行。
+     * 此时通道只会被后台线程读取。</p>
+     *
+     * @param input      数据输入通道，不能为 null
+     * @param charset    用于解码字节数据的字符集，不能为 null
+     * @param bufferSize 字符缓冲区的大小，必须大于 0
+     * @param engine     解码引擎，不能为 null
+     * @param prefetch   是否在后台线程中预读字节数据
+     * @param pool       提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByReadableByteChannel(ReadableByteChannel input, Charset charset, int bufferSize, DecodingEngine engine, boolean prefetch, BufferPool pool) {
+        this(input, charset, bufferSize, bufferSize << 2, engine, true, CodingErrorAction.REPLACE, prefetch, pool);
+    }
+
+    /**
+     * 构造函数，分别指定字符缓冲区和字节缓冲区的大小、解码引擎、字节缓冲区的类型、错误输入的处理方式、是否启用预读和提供缓冲区的缓冲区池。
+     *
+     * <p>启用预读时，后台线程每次读取的字节数约为字节缓冲区的大小，读取完毕的缓冲区直接交给解码器使用。</p>
+     *
+     * @param input                用于读取字节数据的 ReadableByteChannel，不能为 null
+     * @param charset              用于解码字节数据的字符集，不能为 null
+     * @param bufferSize           字符缓冲区的大小，必须大于 0
+     * @param byteBufferSize       字节缓冲区的大小，必须不小于 {@link CodepointSequenceLoader#MIN_BYTE_BUFFER_SIZE}
+     * @param engine               解码引擎，不能为 null
+     * @param directBuffer         是否使用直接缓冲区作为字节缓冲区
+     * @param malformedInputAction 遇到错误输入或无法映射的字符时的处理方式，不能为 null
+     * @param prefetch             是否在后台线程中预读字节数据
+     * @param pool                 提供字符缓冲区和字节缓冲区的缓冲区池，为 null 时直接分配
+     */
+    public CodepointSequenceLoaderByReadableByteChannel(ReadableByteChannel input, Charset charset, int bufferSize, int byteBufferSize, DecodingEngine engine, boolean directBuffer, CodingErrorAction malformedInputAction, boolean prefetch, BufferPool pool) {
+        super(charset, bufferSize, byteBufferSize, engine, directBuffer, malformedInputAction, pool);
         this.input = Objects.requireNonNull(input, "The ReadableByteChannel cannot be null");
+        this.prefetchSize = byteBufferSize;
+        this.prefetcher = prefetch ? Prefetcher.start(input::read, byteBufferSize, true, pool) : null;
+    }
+
+    /**
+     * 关闭当前的通道并切换到新的通道，已分配的缓冲区会被保留，解码器的状态会被重置。
+     * 启用预读时会为新的通道启动新的后台线程。
+     *
+     * @param input 数据输入通道，不能为 null
+     * @throws IOException 如果关闭当前的通道时发生错误
+     */
+    public void reset(ReadableByteChannel input) throws IOException {
+        Objects.requireNonNull(input, "The ReadableByteChannel cannot be null");
+        closeInput();
+        clearBuffers();
+        this.input = input;
+        if (prefetcher != null) {
+            prefetcher = Prefetcher.start(input::read, prefetchSize, true, getBufferPool());
+        }
+    }
+
+    /**
+     * 启用预读时，用后台线程填充完毕的缓冲区替换当前的解码缓冲区，不复制已读取的字节数据；
+     * 未启用预读时返回当前缓冲区，由 loadData 读取数据。
+     *
+     * @param buffer 当前的解码缓冲区
+     * @return 替换后的缓冲区、当前缓冲区本身，或者在到达数据源末尾时返回 null
+     * @throws IOException 如果后台线程读取时发生 I/O 错误
+     */
+    @Override
+    protected ByteBuffer exchangeByteBuffer(ByteBuffer buffer) throws IOException {
+        return prefetcher != null ? prefetcher.exchange(buffer) : buffer;
     }
 
     /**
      * 实现父类的 loadData 方法，从 ReadableByteChannel 中读取字节数据填充到指定的 buffer 中。
      *
-     * <p>该方法将给定的 byte 数组包装成 ByteBuffer，
-     * 然后通过 ReadableByteChannel 的 read 方法读取数据并返回实际读取的字节数。</p>
+     * <p>该方法通过 ReadableByteChannel 的 read 方法将数据直接读取到解码使用的缓冲区中，
+     * 该缓冲区为直接缓冲区，通道无需再经过临时缓冲区复制。</p>
      *
-     * @param buffer 要填充数据的目标 byte 数组
+     * @param buffer 要填充数据的目标 ByteBuffer
      * @return 实际读取的字节数，如果到达数据源末尾则返回 0 或负值
      * @throws IOException 如果读取过程中发生 I/O 错误
      */
     @Override
-    protected int loadData(byte[] buffer) throws IOException {
-        return input.read(ByteBuffer.wrap(buffer));
+    protected int loadData(ByteBuffer buffer) throws IOException {
+        return input.read(buffer);
     }
 
     /**
      * 关闭底层的数据输入通道。
      *
      * <p>此方法实现了 AutoCloseable 接口的 close 方法，
-     * 用于释放与输入通道相关的资源。</p>
+     * 用于停止预读并释放与输入通道相关的资源，包括归还来自缓冲区池的缓冲区。</p>
      *
      * @throws IOException 如果关闭过程中发生 I/O 错误
      */
     @Override
     public void close() throws IOException {
-        input.close();
+        try {
+            closeInput();
+        } finally {
+            releaseBuffers();
+        }
+    }
+
+    /**
+     * 停止预读并关闭当前的数据源，不归还缓冲区。
+     *
+     * @throws IOException 如果关闭过程中发生 I/O 错误
+     */
+    @Override
+    protected void closeInput() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.close(input);
+        } else {
+            input.close();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * MappedBuffers 提供立即释放内存映射区域的工具方法。
+ *
+ * <p>MappedByteBuffer 的映射默认只有在缓冲区被垃圾回收后才会解除，
+ * 这里通过 sun.misc.Unsafe#invokeCleaner 立即解除映射，模块 codepoint.loader 为此依赖 jdk.unsupported。
+ * 如果当前运行环境不提供该方法，会在首次使用时通过 System.Logger 输出一条警告，之后退化为等待垃圾回收。</p>
+ *
+ * @author zhitron
+ */
+final class MappedBuffers {
+    /**
+     * 绑定到 Unsafe 实例的 invokeCleaner 方法句柄，不可用时为 null。
+     */
+    private static final MethodHandle INVOKE_CLEANER = lookupInvokeCleaner();
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * 查找 sun.misc.Unsafe#invokeCleaner 方法。
+     *
+     * @return 绑定到 Unsafe 实例的方法句柄，不可用时返回 null
+     */
+    private static MethodHandle lookupInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.getLogger(MappedBuffers.class.getName()).log(System.Logger.Level.WARNING,
+                    "sun.misc.Unsafe#invokeCleaner is not available, mapped files are unmapped only when garbage collected", e);
+            return null;
+        }
+    }
+
+    /**
+     * 立即解除给定缓冲区的内存映射，之后任何对该缓冲区及其视图的访问都是非法的。
+     *
+     * @param buffer 由 FileChannel.map 返回的缓冲区，为 null 时不做任何操作
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            // 无法立即释放时交由垃圾回收器处理
+            System.getLogger(MappedBuffers.class.getName()).log(System.Logger.Level.WARNING, "Failed to unmap a mapped buffer", e);
+        }
+    }
+}
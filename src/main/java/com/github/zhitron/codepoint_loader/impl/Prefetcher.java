@@ -0,0 +1,306 @@
+package com.github.zhitron.codepoint_loader.impl;
+
+import com.github.zhitron.codepoint_loader.BufferPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prefetcher 在后台虚拟线程中预先读取字节数据，使数据源的 I/O 与消费线程的解码重叠进行。
+ *
+ * <p>读取使用两个大小相同的缓冲区交替进行：后台线程填充一个缓冲区的同时，消费线程直接解码另一个缓冲区。
+ * 填充完毕的缓冲区整体交给消费线程作为解码缓冲区，不再复制数据；每个缓冲区的头部预留 RESERVE 个字节，
+ * 用于放置上一个缓冲区末尾尚未解码的残缺字符序列。
+ * 两个线程之间通过 filled 和 empty 两个单生产者单消费者的槽位交换缓冲区，不使用锁，
+ * 一方在槽位为空时挂起，另一方放入缓冲区后将其唤醒。</p>
+ *
+ * @author zhitron
+ */
+final class Prefetcher implements Runnable {
+    /**
+     * 每个缓冲区头部为尚未解码的字节预留的空间，足以容纳任何字符集中一个残缺的字符序列。
+     */
+    static final int RESERVE = 16;
+
+    /**
+     * 关闭时等待后台线程结束的最长时间。
+     */
+    private static final Duration JOIN_TIMEOUT = Duration.ofSeconds(1);
+
+    /**
+     * 字节数据的来源，由后台线程调用。
+     */
+    @FunctionalInterface
+    interface Source {
+        /**
+         * 将数据源中的字节写入给定的缓冲区。
+         *
+         * @param buffer 处于写模式的目标缓冲区
+         * @return 实际读取的字节数，如果到达数据源末尾则返回 0 或负值
+         * @throws IOException 如果读取过程中发生 I/O 错误
+         */
+        int read(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * 字节数据的来源。
+     */
+    private final Source source;
+
+    /**
+     * 提供缓冲区的缓冲区池，为 null 时直接分配。
+     */
+    private final BufferPool pool;
+
+    /**
+     * 预读使用的两个缓冲区。
+     */
+    private final ByteBuffer[] buffers;
+
+    /**
+     * 由后台线程填充完毕、等待消费线程取走的缓冲区，处于读模式。
+     */
+    private final AtomicReference<ByteBuffer> filled = new AtomicReference<>();
+
+    /**
+     * 由消费线程用完、等待后台线程重新填充的缓冲区。
+     */
+    private final AtomicReference<ByteBuffer> empty = new AtomicReference<>();
+
+    /**
+     * 尚未进入交替使用的第二个缓冲区，消费线程第一次交还加载器自己的缓冲区时放入 empty 槽位。
+     */
+    private ByteBuffer spare;
+
+    /**
+     * 执行预读的后台线程。
+     */
+    private Thread producer;
+
+    /**
+     * 最近一次等待数据的消费线程，后台线程放入缓冲区后将其唤醒。
+     */
+    private volatile Thread consumer;
+
+    /**
+     * 标志位，指示预读是否已停止。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 后台线程读取时发生的异常，在消费线程取到最后一个缓冲区时抛出。
+     */
+    private volatile IOException error;
+
+    /**
+     * 标志位，指示消费线程是否已经读到数据源末尾。
+     */
+    private boolean eof;
+
+    /**
+     * 构造函数，初始化预读使用的两个缓冲区。
+     *
+     * @param source   字节数据的来源
+     * @param capacity 每个缓冲区的容量，不足时会扩大到能够容纳预留空间和同样多的数据
+     * @param direct   是否使用直接缓冲区
+     * @param pool     提供缓冲区的缓冲区池，为 null 时直接分配
+     */
+    private Prefetcher(Source source, int capacity, boolean direct, BufferPool pool) {
+        this.source = source;
+        this.pool = pool;
+        int size = Math.max(capacity, RESERVE << 1);
+        this.buffers = new ByteBuffer[2];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool != null ? pool.acquireByteBuffer(size, direct) : direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+        this.empty.set(buffers[0]);
+        this.spare = buffers[1];
+    }
+
+    /**
+     * 创建 Prefetcher 并立即在虚拟线程中开始预读。
+     *
+     * @param source   字节数据的来源
+     * @param capacity 每个缓冲区的容量
+     * @param direct   是否使用直接缓冲区
+     * @param pool     提供缓冲区的缓冲区池，为 null 时直接分配
+     * @return 已开始预读的 Prefetcher
+     */
+    static Prefetcher start(Source source, int capacity, boolean direct, BufferPool pool) {
+        Prefetcher prefetcher = new Prefetcher(source, capacity, direct, pool);
+        prefetcher.producer = Thread.ofVirtual().name("codepoint-loader-prefetch").unstarted(prefetcher);
+        prefetcher.producer.start();
+        return prefetcher;
+    }
+
+    /**
+     * 后台线程的主循环，不断取得空闲的缓冲区并从预留空间之后开始填充，直到数据源末尾、发生异常或预读停止。
+     * 取得的缓冲区总是被放入 filled 槽位，因此后台线程结束后不会持有任何缓冲区。
+     */
+    @Override
+    public void run() {
+        while (!closed) {
+            ByteBuffer buffer = empty.getAndSet(null);
+            if (buffer == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            buffer.clear().position(RESERVE);
+            int len;
+            try {
+                len = source.read(buffer);
+            } catch (IOException e) {
+                if (!closed) {
+                    error = e;
+                }
+                len = -1;
+            }
+            // 放入一个没有数据的缓冲区表示数据源已经结束
+            buffer.limit(len > 0 ? buffer.position() : RESERVE).position(RESERVE);
+            publish(buffer);
+            if (len <= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 将填充完毕的缓冲区交给消费线程。
+     *
+     * @param buffer 处于读模式的缓冲区
+     */
+    private void publish(ByteBuffer buffer) {
+        filled.set(buffer);
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 用后台线程填充完毕的缓冲区替换消费线程当前的解码缓冲区，必要时等待后台线程。
+     *
+     * <p>当前缓冲区中尚未解码的字节被复制到新缓冲区的预留空间中，使新缓冲区以这些字节开头。
+     * 之后当前缓冲区归 Prefetcher 所有：属于预读的缓冲区会被重新填充，加载器自己的缓冲区则归还到缓冲区池。</p>
+     *
+     * @param buffer 消费线程当前的解码缓冲区，处于读模式
+     * @return 处于读模式的新缓冲区，如果到达数据源末尾则返回 null，此时当前缓冲区仍归消费线程所有
+     * @throws IOException 如果后台线程读取时发生 I/O 错误，或等待时当前线程被中断
+     */
+    ByteBuffer exchange(ByteBuffer buffer) throws IOException {
+        if (eof) {
+            return null;
+        }
+        ByteBuffer next = take();
+        if (!next.hasRemaining()) {
+            // 保留在槽位中，关闭时归还
+            filled.set(next);
+            eof = true;
+            IOException e = error;
+            if (e != null) {
+                throw new IOException("Error to prefetch byte data", e);
+            }
+            return null;
+        }
+        int tail = buffer.remaining();
+        if (tail > RESERVE) {
+            throw new IllegalStateException("Undecoded bytes exceed the reserved space of " + RESERVE + " bytes");
+        }
+        int start = RESERVE - tail;
+        next.put(start, buffer, buffer.position(), tail);
+        next.position(start);
+        recycle(buffer);
+        return next;
+    }
+
+    /**
+     * 将消费线程用完的缓冲区交给后台线程重新填充。
+     * 加载器自己的缓冲区不参与交替使用，改为归还到缓冲区池，并由尚未使用的第二个缓冲区代替。
+     *
+     * @param buffer 用完的缓冲区
+     */
+    private void recycle(ByteBuffer buffer) {
+        if (buffer == buffers[0] || buffer == buffers[1]) {
+            empty.set(buffer);
+        } else {
+            if (pool != null) {
+                pool.release(buffer);
+            }
+            empty.set(spare);
+            spare = null;
+        }
+        LockSupport.unpark(producer);
+    }
+
+    /**
+     * 等待并取走后台线程填充完毕的缓冲区。
+     *
+     * @return 处于读模式的缓冲区
+     * @throws IOException 如果等待时当前线程被中断或预读已停止
+     */
+    private ByteBuffer take() throws IOException {
+        consumer = Thread.currentThread();
+        ByteBuffer buffer;
+        while ((buffer = filled.getAndSet(null)) == null) {
+            if (closed) {
+                throw new IOException("Prefetcher is closed");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for prefetched data");
+            }
+            LockSupport.park(this);
+        }
+        return buffer;
+    }
+
+    /**
+     * 停止预读并关闭数据源，然后等待后台线程结束。
+     *
+     * <p>关闭数据源可以使阻塞在读取中的后台线程返回。后台线程在 JOIN_TIMEOUT 内结束后，
+     * 槽位中的缓冲区会被归还到缓冲区池；仍未结束时这些缓冲区可能还会被后台线程访问，因此不会归还，交由垃圾回收器处理。
+     * 消费线程当前使用的缓冲区由加载器负责归还。</p>
+     *
+     * @param input 预读的数据源
+     * @throws IOException 如果关闭数据源时发生 I/O 错误，或等待时当前线程被中断
+     */
+    void close(Closeable input) throws IOException {
+        closed = true;
+        LockSupport.unpark(producer);
+        try {
+            input.close();
+        } finally {
+            boolean terminated;
+            try {
+                terminated = producer.join(JOIN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the prefetch thread");
+            }
+            if (terminated && pool != null) {
+                releaseSlot(filled);
+                releaseSlot(empty);
+                if (spare != null) {
+                    pool.release(spare);
+                    spare = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 将槽位中的缓冲区归还到缓冲区池。
+     *
+     * @param slot 槽位
+     */
+    private void releaseSlot(AtomicReference<ByteBuffer> slot) {
+        ByteBuffer buffer = slot.getAndSet(null);
+        if (buffer != null) {
+            pool.release(buffer);
+        }
+    }
+}
@@ -1,3 +1,6 @@
 module codepoint.loader {
+    // sun.misc.Unsafe#invokeCleaner 用于立即解除内存映射
+    requires jdk.unsupported;
+
     exports com.github.zhitron.codepoint_loader;
-}
\ No newline at end of file
+}
@@ -1,8 +1,46 @@
 package com.github.zhitron.codepoint_loader;
 
+import com.github.zhitron.codepoint_loader.impl.CodepointLoaderByCharArray;
+import com.github.zhitron.codepoint_loader.impl.CodepointLoaderByCharSequence;
+import com.github.zhitron.codepoint_loader.impl.CodepointLoaderByPipeline;
+import com.github.zhitron.codepoint_loader.impl.CodepointLoaderByReader;
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByByteArray;
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByByteBuffer;
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByInputStream;
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByMappedFile;
+import com.github.zhitron.codepoint_loader.impl.CodepointSequenceLoaderByReadableByteChannel;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author zhitron
@@ -33,4 +71,1284 @@ public class CodepointLoaderTest {
         }
         System.out.println(sb);
     }
+
+    @Test
+    public void test3() throws Exception {
+        String text = "a\uD83D\uDE00b\uD840\uDC00c中文";
+        int[] expected = text.codePoints().toArray();
+        try (CodepointLoader loader = CodepointLoaderFactory.of(text, 4)) {
+            for (int i = 0; i < expected.length; i++) {
+                for (int j = 0; j + i < expected.length && j < 4; j++) {
+                    assertEquals(expected[i + j], loader.peekCodepoint(j));
+                }
+                assertEquals(expected[i], loader.popCodepoint());
+            }
+            assertEquals(-1, loader.peekCodepoint());
+            assertEquals(-1, loader.popCodepoint());
+        }
+    }
+
+    @Test
+    public void test4() throws Exception {
+        String text = "\uD83D\uDE00a\uD840\uDC00\uD83D\uDE01中";
+        for (int bufferSize = 1; bufferSize <= 4; bufferSize++) {
+            StringBuilder sb = new StringBuilder();
+            try (CodepointLoader loader = CodepointLoaderFactory.of(text, bufferSize)) {
+                while (loader.hasNextCodepoint()) {
+                    sb.appendCodePoint(loader.nextCodepoint());
+                }
+                assertEquals(-1, loader.popCodepoint());
+            }
+            assertEquals(text, sb.toString());
+        }
+    }
+
+    @Test
+    public void test5() throws Exception {
+        String text = "ab\uD83D\uDE00cd\uD840\uDC00efg中文\uD83D\uDE01";
+        int[] expected = text.codePoints().toArray();
+        try (CodepointLoader loader = CodepointLoaderFactory.of(text, 3)) {
+            int[] actual = new int[expected.length + 2];
+            assertEquals(expected[1], loader.peekCodepoint(1));
+            int count = loader.read(actual, 1, 4);
+            assertEquals(4, count);
+            count += loader.read(actual, 1 + count, actual.length - 1 - count);
+            assertEquals(expected.length, count);
+            assertEquals(-1, loader.read(actual, 0, actual.length));
+            int[] copy = new int[expected.length];
+            System.arraycopy(actual, 1, copy, 0, copy.length);
+            assertArrayEquals(expected, copy);
+        }
+    }
+
+    @Test
+    public void test6() throws Exception {
+        String text = "  \uD83D\uDE00\uD83D\uDE01ab  cd\uD840\uDC00";
+        try (CodepointLoader loader = CodepointLoaderFactory.of(text, 3)) {
+            assertEquals(0x1F600, loader.skipWhile(Character::isWhitespace));
+            assertEquals(4, loader.scanWhile(codepoint -> !Character.isWhitespace(codepoint)));
+            assertEquals(2, loader.scanWhile(Character::isWhitespace));
+            StringBuilder sb = new StringBuilder();
+            loader.forEachCodepoint(sb::appendCodePoint);
+            assertEquals("cd\uD840\uDC00", sb.toString());
+            assertEquals(-1, loader.skipWhile(codepoint -> true));
+        }
+    }
+
+    @Test
+    public void test7() throws Exception {
+        Random random = new Random(7);
+        String text = "ascii text 0123456789 中文 \uD83D\uDE00\uD840\uDC00 é";
+        byte[] valid = text.getBytes(StandardCharsets.UTF_8);
+        for (int round = 0; round < 2000; round++) {
+            byte[] input = new byte[random.nextInt(96)];
+            for (int i = 0; i < input.length; i++) {
+                // 混合合法片段与随机字节，覆盖各类非法和残缺序列
+                input[i] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : random.nextInt(32) == 0 ? (byte) (0x80 | random.nextInt(0x80)) : valid[(i + round) % valid.length];
+            }
+            String expected = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(ByteBuffer.wrap(input))
+                    .toString();
+            int bufferSize = 2 + random.nextInt(16);
+            ByteBuffer direct = ByteBuffer.allocateDirect(input.length).put(input).flip();
+            for (DecodingEngine engine : new DecodingEngine[]{DecodingEngine.UTF8, DecodingEngine.UTF8_CODEPOINT}) {
+                try (CodepointLoader loader = new CodepointSequenceLoaderByByteArray(input, StandardCharsets.UTF_8, bufferSize, engine)) {
+                    assertEquals(expected, loader.toContent());
+                }
+                // 直接缓冲区没有底层数组，通过绝对位置访问解码
+                try (CodepointLoader loader = new CodepointSequenceLoaderByByteBuffer(direct.duplicate(), StandardCharsets.UTF_8, bufferSize, engine)) {
+                    assertEquals(expected, loader.toContent());
+                }
+            }
+        }
+        try (CodepointLoader loader = new CodepointSequenceLoaderByByteArray(valid, StandardCharsets.UTF_8, 4, DecodingEngine.UTF8_CODEPOINT)) {
+            int count = text.codePointCount(0, text.length());
+            assertEquals('a', loader.peekCodepoint());
+            assertEquals('s', loader.peekCodepoint(1));
+            int[] codepoints = new int[count + 8];
+            assertEquals(count, loader.read(codepoints, 0, codepoints.length));
+            assertArrayEquals(text.codePoints().toArray(), Arrays.copyOf(codepoints, count));
+        }
+    }
+
+    @Test
+    public void test8() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é".repeat(20);
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, Charset.forName("GB18030")}) {
+            byte[] input = Arrays.copyOf(text.getBytes(charset), text.getBytes(charset).length - 1);
+            String expected = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(ByteBuffer.wrap(input))
+                    .toString();
+            for (int bufferSize = 2; bufferSize <= 16; bufferSize += 7) {
+                try (CodepointLoader loader = CodepointLoaderFactory.of(input, charset, bufferSize)) {
+                    assertEquals(expected, loader.toContent());
+                }
+                try (CodepointLoader loader = CodepointLoaderFactory.of(new ByteArrayInputStream(input), charset, bufferSize)) {
+                    assertEquals(expected, loader.toContent());
+                }
+                try (CodepointLoader loader = CodepointLoaderFactory.of(Channels.newChannel(new ByteArrayInputStream(input)), charset, bufferSize)) {
+                    assertEquals(expected, loader.toContent());
+                }
+                // 只实现了已过时的 loadData(byte[]) 的子类仍然可以使用，包括直接缓冲区
+                for (boolean direct : new boolean[]{false, true}) {
+                    try (CodepointLoader loader = new ByteArraySubclass(input, charset, bufferSize, direct)) {
+                        assertEquals(expected, loader.toContent());
+                    }
+                }
+            }
+        }
+        try (CodepointLoader loader = new CodepointSequenceLoader(StandardCharsets.UTF_8, 4) {
+        }) {
+            loader.hasNextCodepoint();
+            fail();
+        } catch (RuntimeException e) {
+            // 两个 loadData 方法都没有覆盖
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    /**
+     * 按旧的方式只实现 loadData(byte[]) 的子类，每次最多读取 3 个字节。
+     */
+    private static final class ByteArraySubclass extends CodepointSequenceLoader {
+        private final byte[] input;
+        private int position;
+
+        ByteArraySubclass(byte[] input, Charset charset, int bufferSize, boolean direct) {
+            super(charset, bufferSize, DecodingEngine.CHARSET_DECODER, direct);
+            this.input = input;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        protected int loadData(byte[] buffer) {
+            int len = Math.min(Math.min(buffer.length, 3), input.length - position);
+            System.arraycopy(input, position, buffer, 0, len);
+            position += len;
+            return len;
+        }
+    }
+
+    @Test
+    public void test9() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(100);
+        Path file = Files.createTempFile("codepoint-loader", ".txt");
+        String threshold = System.getProperty(CodepointLoaderFactory.MAPPED_FILE_THRESHOLD_PROPERTY);
+        try {
+            Files.writeString(file, text);
+            System.setProperty(CodepointLoaderFactory.MAPPED_FILE_THRESHOLD_PROPERTY, "0");
+            CodepointLoader mapped = CodepointLoaderFactory.of(file);
+            try (CodepointLoader loader = mapped) {
+                assertTrue(loader instanceof CodepointSequenceLoaderByMappedFile);
+                assertEquals(text, loader.toContent());
+                assertTrue(isMapped(file));
+            }
+            // close 之后映射必须立即解除，而不是等待垃圾回收
+            assertTrue(mapped.isEmpty());
+            assertTrue(!isMapped(file));
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                try (CodepointLoader loader = new CodepointSequenceLoaderByMappedFile(file, StandardCharsets.UTF_8, 16, engine)) {
+                    assertEquals(text, loader.toContent());
+                }
+            }
+        } finally {
+            if (threshold == null) {
+                System.clearProperty(CodepointLoaderFactory.MAPPED_FILE_THRESHOLD_PROPERTY);
+            } else {
+                System.setProperty(CodepointLoaderFactory.MAPPED_FILE_THRESHOLD_PROPERTY, threshold);
+            }
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * 通过 /proc/self/maps 检查文件当前是否被映射到本进程中，在没有该文件的系统上跳过检查。
+     */
+    private static boolean isMapped(Path file) throws IOException {
+        Path maps = Path.of("/proc/self/maps");
+        Assume.assumeTrue(Files.isReadable(maps));
+        String path = file.toRealPath().toString();
+        return Files.readAllLines(maps).stream().anyMatch(line -> line.endsWith(path));
+    }
+
+    @Test
+    public void test10() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(100);
+        Path file = Files.createTempFile("codepoint-loader", ".txt");
+        try {
+            Files.writeString(file, text);
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                for (int windowSize = 16; windowSize < 24; windowSize++) {
+                    try (CodepointLoader loader = new CodepointSequenceLoaderByMappedFile(file, StandardCharsets.UTF_8, 4, engine, windowSize)) {
+                        assertEquals(text, loader.toContent());
+                    }
+                }
+                CodepointLoader loader = new CodepointSequenceLoaderByMappedFile(file, StandardCharsets.UTF_8, 4, engine, 16);
+                assertEquals('a', loader.nextCodepoint());
+                loader.close();
+                loader.skipWhile(c -> true);
+                assertTrue(loader.isEmpty());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test11() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(10) + "no newline 中";
+        Path file = Files.createTempFile("codepoint-loader", ".txt");
+        try {
+            Files.writeString(file, text);
+            for (int parts = 1; parts <= 40; parts++) {
+                for (boolean alignToLine : new boolean[]{false, true}) {
+                    List<CodepointLoader> loaders = CodepointLoaderFactory.split(file, StandardCharsets.UTF_8, 4, parts, alignToLine);
+                    assertEquals(parts, loaders.size());
+                    StringBuilder sb = new StringBuilder();
+                    for (CodepointLoader loader : loaders) {
+                        String content = loader.toContent();
+                        assertTrue(content.indexOf('\uFFFD') < 0);
+                        if (alignToLine && !content.isEmpty() && sb.length() + content.length() < text.length()) {
+                            assertTrue(content.endsWith("\n"));
+                        }
+                        sb.append(content);
+                        loader.close();
+                    }
+                    assertEquals(text, sb.toString());
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test12() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(2000);
+        int[] expected = text.codePoints().toArray();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("codepoint-loader", ".txt");
+        try {
+            Files.write(file, bytes);
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                List<CodepointLoader> loaders = Arrays.asList(
+                        new CodepointLoaderByCharArray(text.toCharArray(), 16),
+                        new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine),
+                        new CodepointSequenceLoaderByMappedFile(file, StandardCharsets.UTF_8, 16, engine, 1000),
+                        new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, 16, engine));
+                for (CodepointLoader loader : loaders) {
+                    assertArrayEquals(expected, loader.codepoints().parallel().toArray());
+                    loader.close();
+                }
+                try (CodepointLoader loader = new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine)) {
+                    assertEquals(expected.length, loader.codepoints().limit(expected.length).count());
+                }
+            }
+            CodepointLoader loader = new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16);
+            assertEquals(expected[0], loader.nextCodepoint());
+            assertArrayEquals(Arrays.copyOfRange(expected, 1, expected.length), loader.codepoints().parallel().toArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test13() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(500);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            for (int bufferSize = 1; bufferSize < 20; bufferSize += 3) {
+                try (CodepointLoader loader = new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, bufferSize, engine, true)) {
+                    assertEquals(text, loader.toContent());
+                }
+                try (CodepointLoader loader = new CodepointSequenceLoaderByReadableByteChannel(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, bufferSize, engine, true)) {
+                    assertEquals(text, loader.toContent());
+                }
+            }
+        }
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        try (CodepointLoader loader = new CodepointSequenceLoaderByInputStream(failing, StandardCharsets.UTF_8, 16, DecodingEngine.UTF8, true)) {
+            loader.hasNextCodepoint();
+            fail();
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertEquals("broken", cause.getMessage());
+        }
+        // 关闭时后台线程可能仍在等待空闲的缓冲区
+        CodepointLoader loader = new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, 4, DecodingEngine.UTF8, true);
+        assertEquals('a', loader.nextCodepoint());
+        loader.close();
+        // 预读的缓冲区直接交给解码器，并在关闭后归还到缓冲区池
+        BufferPool pool = new BufferPool(8);
+        for (int i = 0; i < 3; i++) {
+            try (CodepointLoader pooled = new CodepointSequenceLoaderByReadableByteChannel(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, 7, DecodingEngine.CHARSET_DECODER, true, pool)) {
+                assertEquals(text, pooled.toContent());
+            }
+        }
+        // 关闭时必须等待阻塞在读取中的后台线程结束
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicBoolean reading = new AtomicBoolean();
+        InputStream blocking = new InputStream() {
+            private boolean first = true;
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (first) {
+                    first = false;
+                    b[off] = 'a';
+                    return 1;
+                }
+                reading.set(true);
+                entered.countDown();
+                try {
+                    released.await();
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                } finally {
+                    reading.set(false);
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() {
+                released.countDown();
+            }
+        };
+        loader = new CodepointSequenceLoaderByInputStream(blocking, StandardCharsets.UTF_8, 4, DecodingEngine.UTF8, true);
+        assertEquals('a', loader.nextCodepoint());
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        loader.close();
+        assertFalse(reading.get());
+    }
+
+    @Test
+    public void test14() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(500);
+        int[] expected = text.codePoints().toArray();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            for (int chunkSize = 1; chunkSize < 40; chunkSize += 7) {
+                try (CodepointLoader loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine), chunkSize, 2)) {
+                    assertEquals(text, loader.toContent());
+                }
+                try (CodepointLoader loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine), chunkSize)) {
+                    int[] actual = new int[expected.length];
+                    int count = 0;
+                    while (count < actual.length) {
+                        assertEquals(expected[count], loader.peekCodepoint());
+                        count += loader.read(actual, count, Math.min(100, actual.length - count));
+                    }
+                    assertEquals(-1, loader.read(actual, 0, 1));
+                    assertArrayEquals(expected, actual);
+                }
+                // 逐个读取和预览时分块直接作为预读环形缓冲区，跨越分块的预览、检查点和放回不受影响
+                try (CodepointLoader loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine), chunkSize, 2)) {
+                    Random random = new Random(chunkSize);
+                    int index = 0;
+                    long mark = loader.mark();
+                    int markIndex = 0;
+                    while (index < expected.length) {
+                        int offset = random.nextInt(chunkSize);
+                        assertEquals(index + offset < expected.length ? expected[index + offset] : -1, loader.peekCodepoint(offset));
+                        assertEquals(expected[index++], loader.nextCodepoint());
+                        if (random.nextInt(50) == 0) {
+                            loader.unread(expected[--index]);
+                        } else if (random.nextInt(200) == 0) {
+                            loader.reset(mark);
+                            loader.release(mark);
+                            index = markIndex;
+                            mark = loader.mark();
+                        } else if (random.nextInt(100) == 0) {
+                            loader.release(mark);
+                            mark = loader.mark();
+                            markIndex = index;
+                        }
+                    }
+                    assertTrue(loader.isEmpty());
+                }
+            }
+        }
+        CodepointLoader failing = new CodepointLoaderByCharArray(new char[0], 1) {
+            @Override
+            protected void loadCharBuffer(CharBuffer charBuffer) {
+                throw new IllegalStateException("broken");
+            }
+        };
+        try (CodepointLoader loader = new CodepointLoaderByPipeline(failing, 16)) {
+            loader.hasNextCodepoint();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("broken", e.getCause().getCause().getMessage());
+        }
+        // 关闭时生产者可能正因环形数组已满而等待
+        CodepointLoader loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16), 4, 2);
+        assertEquals('a', loader.nextCodepoint());
+        loader.close();
+        // 生产者阻塞在不可中断的读取中时，关闭源加载器使读取返回，关闭不会无限期地等待
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        InputStream blocking = new InputStream() {
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                entered.countDown();
+                boolean interrupted = false;
+                while (released.getCount() > 0) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() {
+                released.countDown();
+            }
+        };
+        loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByInputStream(blocking, StandardCharsets.UTF_8, 16), 4);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        loader.close();
+        assertEquals(0, released.getCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        // 关闭数据源也不能使读取返回时，生产者仍可能写入源加载器的缓冲区，这些缓冲区不能归还到缓冲区池
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        byte[][] target = new byte[1][];
+        InputStream stuck = new InputStream() {
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                target[0] = b;
+                reading.countDown();
+                boolean interrupted = false;
+                while (unblock.getCount() > 0) {
+                    try {
+                        unblock.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+        };
+        BufferPool pool = new BufferPool(4);
+        loader = new CodepointLoaderByPipeline(new CodepointSequenceLoaderByInputStream(stuck, StandardCharsets.UTF_8, 16, DecodingEngine.UTF8, false, pool), 4);
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        loader.close();
+        ByteBuffer acquired = pool.acquireByteBuffer(target[0].length, false);
+        assertTrue(acquired.array() != target[0]);
+        unblock.countDown();
+    }
+
+    @Test
+    public void test15() throws Exception {
+        String[] texts = {"ascii 中文 \uD83D\uDE00", "", "\uD840\uDC00 é\n".repeat(50), "x"};
+        CodepointLoaderByCharArray chars = new CodepointLoaderByCharArray(new char[0], 4);
+        CodepointLoaderByReader reader = new CodepointLoaderByReader(new StringReader(""), 4);
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            CodepointSequenceLoaderByByteArray bytes = new CodepointSequenceLoaderByByteArray(new byte[0], StandardCharsets.UTF_8, 4, engine);
+            CodepointSequenceLoaderByInputStream stream = new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8, 4, engine, false);
+            CodepointSequenceLoaderByInputStream prefetched = new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8, 4, engine, true);
+            CodepointSequenceLoaderByReadableByteChannel channel = new CodepointSequenceLoaderByReadableByteChannel(Channels.newChannel(new ByteArrayInputStream(new byte[0])), StandardCharsets.UTF_8, 4, engine);
+            for (String text : texts) {
+                // 上一个数据源中残留的数据和不完整的字节序列不应影响新的数据源
+                byte[] data = text.getBytes(StandardCharsets.UTF_8);
+                for (CodepointLoader loader : Arrays.asList(chars, reader, bytes, stream, prefetched, channel)) {
+                    loader.peekCodepoint(2);
+                }
+                chars.reset(text.toCharArray());
+                reader.reset(new StringReader(text));
+                bytes.reset(data);
+                stream.reset(new ByteArrayInputStream(data));
+                prefetched.reset(new ByteArrayInputStream(data));
+                channel.reset(Channels.newChannel(new ByteArrayInputStream(data)));
+                for (CodepointLoader loader : Arrays.asList(chars, reader, bytes, stream, prefetched, channel)) {
+                    assertEquals(text, loader.toContent());
+                }
+                bytes.reset(new byte[]{(byte) 0xE4, (byte) 0xB8});
+                stream.reset(new ByteArrayInputStream(new byte[]{(byte) 0xE4, (byte) 0xB8}));
+                assertEquals(0xFFFD, bytes.peekCodepoint());
+                assertEquals(0xFFFD, stream.peekCodepoint());
+            }
+            prefetched.close();
+        }
+    }
+
+    @Test
+    public void test16() throws Exception {
+        BufferPool pool = new BufferPool(2);
+        CharBuffer chars = pool.acquireCharBuffer(100);
+        assertEquals(128, chars.capacity());
+        pool.release(chars);
+        assertTrue(chars == pool.acquireCharBuffer(65));
+        ByteBuffer direct = pool.acquireByteBuffer(4096, true);
+        assertTrue(direct.isDirect());
+        pool.release(direct);
+        assertTrue(direct == pool.acquireByteBuffer(4096, true));
+        assertTrue(pool.acquireByteBuffer(4096, false).hasArray());
+        // 不是由池分配的缓冲区会被忽略
+        BufferPool strict = new BufferPool(2);
+        strict.release(ByteBuffer.wrap(new byte[128], 0, 64).slice());
+        strict.release(ByteBuffer.allocate(128).slice(32, 64));
+        strict.release(CharBuffer.wrap(new char[128]).slice(64, 64));
+        strict.release(ByteBuffer.allocateDirect(100));
+        strict.release(ByteBuffer.allocate(64).asReadOnlyBuffer());
+        assertEquals(64, strict.acquireByteBuffer(64, false).array().length);
+        assertEquals(64, strict.acquireCharBuffer(64).array().length);
+        assertEquals(64, strict.acquireByteBuffer(64, true).capacity());
+        ByteBuffer owned = ByteBuffer.allocate(64);
+        strict.release(owned);
+        assertTrue(owned == strict.acquireByteBuffer(64, false));
+
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(50);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            CodepointLoader first = new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, 16, engine, pool);
+            assertEquals('a', first.nextCodepoint());
+            first.close();
+            // 关闭后缓冲区已归还，加载器不再产出数据，也不会干扰复用该缓冲区的加载器
+            CodepointLoader second = new CodepointSequenceLoaderByReadableByteChannel(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, 16, engine, false, pool);
+            assertTrue(first.isEmpty());
+            assertEquals(text, second.toContent());
+            second.close();
+        }
+        Thread[] threads = new Thread[4];
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    try (CodepointLoader loader = CodepointLoaderFactory.of(bytes, StandardCharsets.UTF_8, 8)) {
+                        if (!text.equals(loader.toContent())) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void test17() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(200);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("codepoint", ".txt");
+        try {
+            Files.write(file, bytes);
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                for (boolean direct : new boolean[]{false, true}) {
+                    for (long threshold : new long[]{0, Long.MAX_VALUE}) {
+                        CodepointLoaderFactory factory = CodepointLoaderFactory.builder()
+                                .charBufferSize(3)
+                                .byteBufferSize(5)
+                                .directBuffers(direct)
+                                .prefetch(direct)
+                                .engine(engine)
+                                .bufferPool(null)
+                                .mappedFileThreshold(threshold)
+                                .build();
+                        try (CodepointLoader stream = factory.create(new ByteArrayInputStream(bytes));
+                             CodepointLoader channel = factory.create(Channels.newChannel(new ByteArrayInputStream(bytes)));
+                             CodepointLoader array = factory.create(bytes);
+                             CodepointLoader path = factory.create(file);
+                             CodepointLoader string = factory.create(text);
+                             CodepointLoader reader = factory.create(new StringReader(text))) {
+                            for (CodepointLoader loader : Arrays.asList(stream, channel, array, path, string, reader)) {
+                                assertEquals(text, loader.toContent());
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+        byte[] malformed = {'a', (byte) 0xFF, 'b'};
+        CodepointLoaderFactory ignore = CodepointLoaderFactory.builder().engine(DecodingEngine.UTF8_CODEPOINT).malformedInputAction(CodingErrorAction.IGNORE).build();
+        try (CodepointLoader loader = ignore.create(new ByteArrayInputStream(malformed))) {
+            assertEquals("ab", loader.toContent());
+        }
+        CodepointLoaderFactory report = CodepointLoaderFactory.builder().charset(StandardCharsets.UTF_8).malformedInputAction(CodingErrorAction.REPORT).build();
+        try (CodepointLoader loader = report.create(malformed)) {
+            assertEquals('a', loader.nextCodepoint());
+            loader.nextCodepoint();
+            fail();
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertTrue(cause instanceof MalformedInputException);
+        }
+        try {
+            CodepointLoaderFactory.builder().byteBufferSize(CodepointSequenceLoader.MIN_BYTE_BUFFER_SIZE - 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("byteBufferSize"));
+        }
+    }
+
+    @Test
+    public void test18() throws Exception {
+        AdaptiveSizing sizing = new AdaptiveSizing(16, 64);
+        int capacity = 16;
+        for (int i = 0; i < 20; i++) {
+            capacity = sizing.record(capacity, capacity, capacity);
+        }
+        assertEquals(64, capacity);
+        for (int i = 0; i < 100; i++) {
+            capacity = sizing.record(capacity, capacity, 1);
+        }
+        assertEquals(16, capacity);
+
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(2000);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int[] largest = new int[1];
+        InputStream tracking = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                largest[0] = Math.max(largest[0], len);
+                return super.read(b, off, len);
+            }
+        };
+        CodepointLoaderFactory factory = CodepointLoaderFactory.builder().charBufferSize(16).adaptiveBuffers(8, 4096).build();
+        try (CodepointLoader loader = factory.create(tracking)) {
+            assertEquals(text, loader.toContent());
+        }
+        assertTrue(largest[0] > 16 << 2);
+        // 每次只提供一个字节的数据源会使缓冲区缩小，数据仍然完整
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            for (int max = 2; max < 40; max += 7) {
+                CodepointLoaderFactory adaptive = CodepointLoaderFactory.builder().charBufferSize(3).engine(engine).adaptiveBuffers(1, max).build();
+                try (CodepointLoader chars = adaptive.create(text);
+                     CodepointLoader reader = adaptive.create(new StringReader(text));
+                     CodepointLoader array = adaptive.create(bytes);
+                     CodepointLoader channel = adaptive.create(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+                    for (CodepointLoader loader : Arrays.asList(chars, reader, array, channel)) {
+                        StringBuilder sb = new StringBuilder();
+                        loader.forEachCodepoint(sb::appendCodePoint);
+                        assertEquals(text, sb.toString());
+                    }
+                }
+            }
+            trickle.reset();
+            CodepointLoader loader = new CodepointSequenceLoaderByInputStream(trickle, StandardCharsets.UTF_8, 64, engine);
+            loader.enableAdaptiveBuffers(4, 64);
+            assertEquals(text, loader.toContent());
+            loader.close();
+        }
+        try {
+            CodepointLoaderFactory.of("abc").enableAdaptiveBuffers(8, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("maxBufferSize"));
+        }
+    }
+
+    @Test
+    public void test19() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(300);
+        CharSequence wrapped = new CharSequence() {
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+        };
+        List<CharSequence> inputs = Arrays.asList(text, new StringBuilder(text), new StringBuffer(text), wrapped);
+        for (CharSequence input : inputs) {
+            for (int bufferSize = 1; bufferSize < 20; bufferSize += 3) {
+                try (CodepointLoader loader = CodepointLoaderFactory.of(input, bufferSize)) {
+                    assertEquals(text, loader.toContent());
+                }
+            }
+            try (CodepointLoader loader = CodepointLoaderFactory.of(input)) {
+                assertArrayEquals(text.codePoints().toArray(), loader.codepoints().parallel().toArray());
+            }
+        }
+        try (CodepointLoaderByCharSequence loader = new CodepointLoaderByCharSequence("\uD83D\uDE00", 4)) {
+            assertEquals(0x1F600, loader.peekCodepoint());
+            loader.reset(new StringBuilder("ab"));
+            assertEquals("ab", loader.toContent());
+        }
+    }
+
+    @Test
+    public void test20() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(300);
+        CharBuffer heap = CharBuffer.wrap(("xx" + text + "yy").toCharArray(), 2, text.length());
+        CharBuffer direct = ByteBuffer.allocateDirect(text.length() * 2).asCharBuffer();
+        direct.put(text).flip();
+        CharBuffer sliced = CharBuffer.wrap("--" + text).position(2).slice();
+        List<CharBuffer> inputs = Arrays.asList(heap, heap.asReadOnlyBuffer(), direct, direct.asReadOnlyBuffer(), sliced, CharBuffer.wrap(text));
+        for (CharBuffer input : inputs) {
+            int position = input.position();
+            for (int bufferSize = 1; bufferSize < 20; bufferSize += 3) {
+                try (CodepointLoader loader = CodepointLoaderFactory.of(input, bufferSize)) {
+                    assertEquals(text, loader.toContent());
+                }
+                try (CodepointLoader loader = CodepointLoaderFactory.of(input, bufferSize)) {
+                    StringBuilder sb = new StringBuilder();
+                    while (loader.hasNextCodepoint()) {
+                        int codepoint = loader.peekCodepoint();
+                        assertEquals(codepoint, loader.nextCodepoint());
+                        sb.appendCodePoint(codepoint);
+                    }
+                    assertEquals(text, sb.toString());
+                }
+            }
+            // 加载器不会修改数据源的位置
+            assertEquals(position, input.position());
+            try (CodepointLoader loader = CodepointLoaderFactory.of(input)) {
+                assertArrayEquals(text.codePoints().toArray(), loader.codepoints().parallel().toArray());
+            }
+        }
+        // 数据源以高代理字符结束时，与其它加载器一样抛出异常
+        CharBuffer view = ByteBuffer.allocateDirect(8).asCharBuffer().put("ab\uD83D").flip();
+        for (CharBuffer input : Arrays.asList(CharBuffer.wrap("ab\uD83D"), view)) {
+            for (CodepointLoader loader : Arrays.asList(
+                    CodepointLoaderFactory.of(input), new CodepointLoaderByCharSequence("ab\uD83D", 16), new CodepointLoaderByCharArray("ab\uD83D".toCharArray(), 16))) {
+                assertEquals('a', loader.nextCodepoint());
+                assertEquals('b', loader.nextCodepoint());
+                try {
+                    loader.nextCodepoint();
+                    fail();
+                } catch (IllegalStateException e) {
+                    assertEquals("Incomplete surrogate pair: high surrogate without low surrogate.", e.getMessage());
+                }
+                loader.close();
+            }
+        }
+    }
+
+    @Test
+    public void test21() throws Exception {
+        String text = "ascii 中文 \uD83D\uDE00\uD840\uDC00 é\n".repeat(300);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 4);
+        direct.put(new byte[]{'x', 'x'}).put(bytes).put(new byte[]{'y', 'y'}).flip();
+        direct.position(2).limit(2 + bytes.length);
+        ByteBuffer sliced = ByteBuffer.wrap(bytes, 3, bytes.length - 3).slice();
+        List<ByteBuffer> inputs = Arrays.asList(ByteBuffer.wrap(bytes), direct, direct.asReadOnlyBuffer(), ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+        for (ByteBuffer input : inputs) {
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                for (int bufferSize = 1; bufferSize < 20; bufferSize += 3) {
+                    try (CodepointLoader loader = CodepointLoaderFactory.builder().engine(engine).charBufferSize(bufferSize).build().create(input)) {
+                        assertEquals(text, loader.toContent());
+                    }
+                }
+            }
+            try (CodepointLoader loader = CodepointLoaderFactory.of(input)) {
+                assertArrayEquals(text.codePoints().toArray(), loader.codepoints().parallel().toArray());
+            }
+        }
+        // 加载器不会修改数据源的位置
+        assertEquals(2, direct.position());
+        try (CodepointSequenceLoaderByByteBuffer loader = new CodepointSequenceLoaderByByteBuffer(sliced, StandardCharsets.UTF_8, 8)) {
+            assertEquals(text.substring(3), loader.toContent());
+            loader.reset(ByteBuffer.wrap("中".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+            assertEquals(0x4E2D, loader.nextCodepoint());
+            assertTrue(loader.isEmpty());
+        }
+    }
+
+    @Test
+    public void test22() throws Exception {
+        String text = "ascii 中文\r\n\uD83D\uDE00\uD840\uDC00 é\n\n\r\r\n".repeat(200) + "end";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int[] codepoints = text.codePoints().toArray();
+        // 每个 Code Point 下标对应的期望位置
+        CodepointPosition[] expected = new CodepointPosition[codepoints.length + 1];
+        long chars = 0, byteOffset = 0, line = 1, column = 1;
+        for (int i = 0; ; i++) {
+            expected[i] = new CodepointPosition(i, chars, byteOffset, line, column);
+            if (i == codepoints.length) {
+                break;
+            }
+            chars += Character.charCount(codepoints[i]);
+            byteOffset += new String(codepoints, i, 1).getBytes(StandardCharsets.UTF_8).length;
+            // '\n'、'\r' 和 "\r\n" 各计为一个行结束符
+            if (codepoints[i] == '\r' || codepoints[i] == '\n' && (i == 0 || codepoints[i - 1] != '\r')) {
+                line++;
+                column = 1;
+            } else if (codepoints[i] == '\n') {
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        Random random = new Random(7);
+        int[] buffer = new int[16];
+        for (DecodingEngine engine : DecodingEngine.values()) {
+            for (int bufferSize = 1; bufferSize < 24; bufferSize += 5) {
+                List<CodepointLoader> loaders = Arrays.asList(
+                        new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, bufferSize, engine),
+                        new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, bufferSize, engine),
+                        new CodepointLoaderByCharSequence(text, bufferSize),
+                        new CodepointLoaderByReader(new StringReader(text), bufferSize),
+                        CodepointLoaderFactory.of(CharBuffer.wrap(text), bufferSize));
+                for (CodepointLoader loader : loaders) {
+                    boolean bytesKnown = loader instanceof CodepointSequenceLoader;
+                    int index = 0;
+                    while (index < codepoints.length) {
+                        switch (random.nextInt(5)) {
+                            case 0:
+                                assertEquals(codepoints[index++], loader.nextCodepoint());
+                                break;
+                            case 1:
+                                int offset = random.nextInt(bufferSize);
+                                int peeked = loader.peekCodepoint(offset);
+                                assertEquals(index + offset < codepoints.length ? codepoints[index + offset] : -1, peeked);
+                                break;
+                            case 2:
+                                int count = loader.read(buffer, 0, 1 + random.nextInt(buffer.length));
+                                index += count;
+                                break;
+                            case 3:
+                                index += (int) loader.scanWhile(codepoint -> codepoint != '\n');
+                                break;
+                            default:
+                                int skip = random.nextInt(Math.min(bufferSize, codepoints.length - index));
+                                assertEquals(codepoints[index + skip], loader.popCodepoint(skip));
+                                index += skip + 1;
+                                break;
+                        }
+                        CodepointPosition position = loader.position();
+                        CodepointPosition want = expected[index];
+                        assertEquals(want.getCodepointIndex(), position.getCodepointIndex());
+                        assertEquals(want.getCharOffset(), position.getCharOffset());
+                        assertEquals(bytesKnown ? want.getByteOffset() : -1, position.getByteOffset());
+                        assertEquals(want.getLine(), position.getLine());
+                        assertEquals(want.getColumn(), position.getColumn());
+                    }
+                    assertTrue(loader.isEmpty());
+                    loader.close();
+                }
+            }
+        }
+        try (CodepointSequenceLoaderByByteArray loader = new CodepointSequenceLoaderByByteArray("a\nb".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, 4)) {
+            loader.forEachCodepoint(codepoint -> {
+            });
+            assertEquals("2:2", loader.position().toString());
+            loader.reset("x".getBytes(StandardCharsets.UTF_8));
+            assertEquals(new CodepointPosition(0, 0, 0, 1, 1), loader.position());
+        }
+    }
+
+    @Test
+    public void test23() throws Exception {
+        String text = "(a \uD83D\uDE00 [b, c] 中文\n".repeat(150);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int[] codepoints = text.codePoints().toArray();
+        Random random = new Random(23);
+        int[] buffer = new int[8];
+        for (int bufferSize = 1; bufferSize < 20; bufferSize += 6) {
+            List<CodepointLoader> loaders = Arrays.asList(
+                    new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, bufferSize, DecodingEngine.UTF8),
+                    new CodepointSequenceLoaderByInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, bufferSize),
+                    new CodepointLoaderByReader(new StringReader(text), bufferSize),
+                    CodepointLoaderFactory.of(CharBuffer.wrap(text), bufferSize));
+            for (CodepointLoader loader : loaders) {
+                List<Long> marks = new ArrayList<>();
+                int index = 0;
+                while (index < codepoints.length) {
+                    switch (random.nextInt(6)) {
+                        case 0:
+                            long mark = loader.mark();
+                            assertEquals(index, mark);
+                            marks.add(mark);
+                            break;
+                        case 1:
+                            if (!marks.isEmpty()) {
+                                int i = random.nextInt(marks.size());
+                                index = (int) (long) marks.get(i);
+                                loader.reset(marks.get(i));
+                                marks.subList(i + 1, marks.size()).clear();
+                            }
+                            break;
+                        case 2:
+                            if (!marks.isEmpty()) {
+                                loader.release(marks.remove(random.nextInt(marks.size())));
+                            }
+                            break;
+                        case 3:
+                            int count = loader.read(buffer, 0, 1 + random.nextInt(buffer.length));
+                            for (int i = 0; i < count; i++) {
+                                assertEquals(codepoints[index++], buffer[i]);
+                            }
+                            break;
+                        case 4:
+                            int offset = random.nextInt(bufferSize);
+                            assertEquals(index + offset < codepoints.length ? codepoints[index + offset] : -1, loader.peekCodepoint(offset));
+                            break;
+                        default:
+                            int scanned = (int) loader.scanWhile(codepoint -> codepoint != ']');
+                            index += scanned;
+                            if (index < codepoints.length) {
+                                assertEquals(codepoints[index++], loader.nextCodepoint());
+                            }
+                            break;
+                    }
+                    assertEquals(index, loader.position().getCodepointIndex());
+                }
+                // 回到最早的检查点后重新读取剩余的全部数据
+                if (!marks.isEmpty()) {
+                    index = (int) (long) marks.get(0);
+                    loader.reset(marks.get(0));
+                    int[] rest = loader.codepoints().toArray();
+                    assertArrayEquals(Arrays.copyOfRange(codepoints, index, codepoints.length), rest);
+                }
+                loader.close();
+            }
+        }
+        try (CodepointLoader loader = CodepointLoaderFactory.of("ab\ncd", 2)) {
+            long outer = loader.mark();
+            loader.nextCodepoint();
+            loader.nextCodepoint();
+            long inner = loader.mark();
+            assertEquals("\ncd", loader.toContent());
+            assertEquals("2:3", loader.position().toString());
+            loader.reset(inner);
+            assertEquals("1:3", loader.position().toString());
+            assertEquals('\n', loader.nextCodepoint());
+            loader.reset(outer);
+            assertEquals("1:1", loader.position().toString());
+            try {
+                loader.reset(inner);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 回到外层检查点后，内层检查点已被释放
+            }
+            loader.release(outer);
+            assertEquals("ab\ncd", loader.toContent());
+        }
+    }
+
+    @Test
+    public void test24() throws Exception {
+        String text = "let x = 1;\r\n\uD83D\uDE00 >= 中文\n\r\r\n".repeat(100);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int[] codepoints = text.codePoints().toArray();
+        Random random = new Random(24);
+        for (int bufferSize = 1; bufferSize < 20; bufferSize += 6) {
+            List<CodepointLoader> loaders = Arrays.asList(
+                    new CodepointSequenceLoaderByByteArray(bytes, StandardCharsets.UTF_8, bufferSize, DecodingEngine.UTF8),
+                    new CodepointLoaderByReader(new StringReader(text), bufferSize),
+                    CodepointLoaderFactory.of(CharBuffer.wrap(text), bufferSize));
+            for (CodepointLoader loader : loaders) {
+                CodepointPosition[] positions = new CodepointPosition[codepoints.length + 1];
+                positions[0] = loader.position();
+                int index = 0;
+                while (index < codepoints.length) {
+                    if (random.nextInt(3) == 0 && index > 0) {
+                        // 回退最近读取的一到两个 Code Point
+                        int n = Math.min(index, 1 + random.nextInt(2));
+                        index -= n;
+                        if (n == 1) {
+                            loader.unread(codepoints[index]);
+                        } else {
+                            loader.unread(codepoints, index, n);
+                        }
+                    } else {
+                        assertEquals(codepoints[index++], loader.nextCodepoint());
+                    }
+                    CodepointPosition position = loader.position();
+                    if (positions[index] == null) {
+                        positions[index] = position;
+                    }
+                    assertEquals(positions[index], position);
+                }
+                assertTrue(loader.isEmpty());
+                loader.close();
+            }
+        }
+        // 回退到开头的 '\n' 之前时，不能被当作 "\r\n" 的后半部分
+        for (String input : new String[]{"\n", "\nx", "\n\n", "\r\n"}) {
+            byte[] inputBytes = input.getBytes(StandardCharsets.UTF_8);
+            List<CodepointLoader> loaders = new ArrayList<>(Arrays.asList(
+                    CodepointLoaderFactory.of(input, 4),
+                    CodepointLoaderFactory.of(input.toCharArray(), 4),
+                    CodepointLoaderFactory.of(CharBuffer.wrap(input), 4),
+                    CodepointLoaderFactory.of(new StringReader(input), 4),
+                    CodepointLoaderFactory.of(ByteBuffer.wrap(inputBytes), StandardCharsets.UTF_8, 4),
+                    CodepointLoaderFactory.of(new ByteArrayInputStream(inputBytes), StandardCharsets.UTF_8, 4)));
+            for (DecodingEngine engine : DecodingEngine.values()) {
+                loaders.add(new CodepointSequenceLoaderByByteArray(inputBytes, StandardCharsets.UTF_8, 4, engine));
+            }
+            for (CodepointLoader loader : loaders) {
+                int first = loader.popCodepoint();
+                loader.unread(first);
+                CodepointPosition position = loader.position();
+                assertEquals(0, position.getCodepointIndex());
+                assertEquals(1, position.getLine());
+                assertEquals(1, position.getColumn());
+                int second = loader.peekCodepoint(1);
+                if (second >= 0) {
+                    assertEquals(first, loader.nextCodepoint());
+                    assertEquals(second, loader.nextCodepoint());
+                    loader.unread(new int[]{first, second}, 0, 2);
+                    position = loader.position();
+                    assertEquals(0, position.getCodepointIndex());
+                    assertEquals(1, position.getLine());
+                    assertEquals(1, position.getColumn());
+                }
+                assertEquals(input, loader.toContent());
+                loader.close();
+            }
+        }
+        try (CodepointLoader loader = CodepointLoaderFactory.of("ab", 1)) {
+            try {
+                loader.unread('x');
+                fail();
+            } catch (IllegalStateException e) {
+                // 没有已消费的 Code Point 时不能放回
+            }
+            assertEquals('a', loader.nextCodepoint());
+            long mark = loader.mark();
+            assertEquals('b', loader.nextCodepoint());
+            loader.unread(new int[]{'a', 'b'}, 0, 2);
+            assertEquals(0, loader.position().getCodepointIndex());
+            try {
+                loader.release(mark);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 回退到检查点之前时，该检查点已被释放
+            }
+            assertEquals("ab", loader.toContent());
+        }
+    }
+
+    @Test
+    public void test25() throws Exception {
+        // 当前实现（使用 vector 配置时为向量实现）与默认实现的结果一致
+        CharScanner scanner = CharScanner.INSTANCE;
+        CharScanner scalar = new CharScanner();
+        Random random = new Random(25);
+        char[] alphabet = {'a', ',', '"', '\n', '\r', '中', '\uD83D', '\uDE00'};
+        char[][] delimiterSets = {{','}, {',', '"', '\n'}, {'\n', '\r'}};
+        for (int round = 0; round < 200; round++) {
+            char[] array = new char[random.nextInt(100)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : 'x';
+            }
+            int from = array.length == 0 ? 0 : random.nextInt(array.length);
+            assertEquals(scalar.indexOfHighSurrogate(array, from, array.length), scanner.indexOfHighSurrogate(array, from, array.length));
+            for (char[] delimiters : delimiterSets) {
+                assertEquals(scalar.indexOfAny(array, from, array.length, delimiters), scanner.indexOfAny(array, from, array.length, delimiters));
+            }
+        }
+        String text = "name,\"value \uD83D\uDE00\",中文\r\n".repeat(100);
+        int[] codepoints = text.codePoints().toArray();
+        for (int bufferSize = 1; bufferSize < 40; bufferSize += 7) {
+            List<CodepointLoader> loaders = Arrays.asList(
+                    new CodepointSequenceLoaderByByteArray(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, bufferSize, DecodingEngine.UTF8),
+                    new CodepointLoaderByReader(new StringReader(text), bufferSize),
+                    CodepointLoaderFactory.of(CharBuffer.wrap(text), bufferSize));
+            for (CodepointLoader loader : loaders) {
+                int index = 0;
+                while (true) {
+                    long scanned = loader.scanUntil(',', '"', '\n');
+                    int expected = 0;
+                    while (index + expected < codepoints.length && ",\"\n".indexOf(codepoints[index + expected]) < 0) {
+                        expected++;
+                    }
+                    assertEquals(expected, scanned);
+                    index += expected;
+                    assertEquals(index, loader.position().getCodepointIndex());
+                    if (index == codepoints.length) {
+                        break;
+                    }
+                    if (random.nextBoolean()) {
+                        loader.peekCodepoint(random.nextInt(bufferSize));
+                    }
+                    assertEquals(codepoints[index++], loader.nextCodepoint());
+                }
+                assertTrue(loader.isEmpty());
+                loader.close();
+            }
+        }
+        try (CodepointLoader loader = CodepointLoaderFactory.of("ab", 1)) {
+            loader.scanUntil('\uD800');
+            fail();
+        } catch (IllegalArgumentException e) {
+            // 分隔符不能是代理字符
+        }
+    }
+
+    @Test
+    public void test26() throws Exception {
+        String text = "first line\r\nsecond \uD83D\uDE00 中文\n\r\rthird\r\n" + "x".repeat(100) + "\n\nlast";
+        List<String> expected = Arrays.asList("first line", "second \uD83D\uDE00 中文", "", "", "third", "x".repeat(100), "", "last");
+        Random random = new Random(26);
+        for (int bufferSize = 1; bufferSize < 40; bufferSize += 3) {
+            List<CodepointLoader> loaders = Arrays.asList(
+                    new CodepointSequenceLoaderByByteArray(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, bufferSize, DecodingEngine.UTF8),
+                    new CodepointSequenceLoaderByByteArray(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, bufferSize, DecodingEngine.UTF8_CODEPOINT),
+                    new CodepointLoaderByReader(new StringReader(text), bufferSize),
+                    CodepointLoaderFactory.of(CharBuffer.wrap(text), bufferSize));
+            for (CodepointLoader loader : loaders) {
+                List<String> lines = new ArrayList<>();
+                CharSequence line;
+                while (true) {
+                    if (random.nextInt(3) == 0) {
+                        // 预读的数据先进入预读环形缓冲区
+                        loader.peekCodepoint(random.nextInt(bufferSize));
+                    }
+                    if ((line = loader.nextLine()) == null) {
+                        break;
+                    }
+                    lines.add(line.toString());
+                    // 行号与 nextLine 划分的行一致
+                    if (loader.hasNextCodepoint()) {
+                        assertEquals(lines.size() + 1, loader.position().getLine());
+                        assertEquals(1, loader.position().getColumn());
+                    }
+                }
+                assertEquals(expected, lines);
+                assertEquals(text.codePointCount(0, text.length()), loader.position().getCodepointIndex());
+                assertEquals(8, loader.position().getLine());
+                loader.close();
+            }
+        }
+        try (CodepointLoader loader = CodepointLoaderFactory.of("a\rb\rc\rd", 1)) {
+            for (int i = 1; i <= 4; i++) {
+                assertEquals(String.valueOf((char) ('a' + i - 1)), loader.nextLine().toString());
+                assertEquals(i < 4 ? i + 1 : i, loader.position().getLine());
+            }
+        }
+        // 回退跨批次的 "\r\n" 中的 '\n' 后仍位于 '\r' 之后的行首
+        try (CodepointLoader loader = CodepointLoaderFactory.of("ab\r\ncd", 1)) {
+            loader.read(new int[3], 0, 3);
+            assertEquals(2, loader.position().getLine());
+            assertEquals(1, loader.position().getColumn());
+            assertEquals('\n', loader.nextCodepoint());
+            assertEquals(2, loader.position().getLine());
+            assertEquals(1, loader.position().getColumn());
+            loader.unread('\n');
+            assertEquals(2, loader.position().getLine());
+            assertEquals(1, loader.position().getColumn());
+            loader.unread('\r');
+            assertEquals(1, loader.position().getLine());
+            assertEquals(3, loader.position().getColumn());
+            assertEquals("\r\ncd", loader.toContent());
+        }
+        try (CodepointLoader loader = CodepointLoaderFactory.of("a,b\nc\r\n", 64)) {
+            List<String> lines = new ArrayList<>();
+            loader.forEachLine(l -> lines.add(l.subSequence(0, l.length()).toString()));
+            assertEquals(Arrays.asList("a,b", "c"), lines);
+            assertEquals(null, loader.nextLine());
+        }
+    }
+
+    @Test
+    public void test27() throws Exception {
+        // 使用 vector 配置运行时，向量实现必须被加载，并且在任意位置（包括向量边界和尾部）与默认实现的结果一致
+        Assume.assumeTrue(Boolean.getBoolean("codepoint.loader.vector"));
+        CharScanner vector = CharScanner.INSTANCE;
+        assertEquals("com.github.zhitron.codepoint_loader.VectorCharScanner", vector.getClass().getName());
+        CharScanner scalar = new CharScanner();
+        // 512 位向量有 32 个 short 通道，长度覆盖多个完整向量加上各种长度的尾部
+        char[] targets = {'\uD800', '\uDBFF', ',', '"', '\n', '\r'};
+        char[] decoys = {'\uDC00', '\uDFFF', '\uD7FF', '\uE000', '\u2C00', '\u0000', '\uFFFF', 'x'};
+        char[][] delimiterSets = {{','}, {',', '"'}, {',', '"', '\n'}, {'\n', '\r'}};
+        for (int length = 0; length <= 130; length++) {
+            char[] array = new char[length];
+            for (int from = 0; from <= Math.min(length, 8); from++) {
+                for (int to = Math.max(from, length - 8); to <= length; to++) {
+                    for (char decoy : decoys) {
+                        Arrays.fill(array, decoy);
+                        assertScanners(scalar, vector, array, from, to, delimiterSets);
+                    }
+                    for (int p = from; p < to; p++) {
+                        for (char target : targets) {
+                            Arrays.fill(array, 'x');
+                            array[p] = target;
+                            // 代理对的低代理字符落在下一个通道，不能被当作高代理字符
+                            if (p + 1 < length) {
+                                array[p + 1] = '\uDC00';
+                            }
+                            assertScanners(scalar, vector, array, from, to, delimiterSets);
+                        }
+                    }
+                }
+            }
+        }
+        Random random = new Random(27);
+        char[] alphabet = {'a', ',', '"', '\n', '\r', '中', '\uD83D', '\uDE00', '\uDBFF', '\uDC00'};
+        for (int round = 0; round < 2000; round++) {
+            char[] array = new char[random.nextInt(300)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = random.nextInt(16) == 0 ? alphabet[random.nextInt(alphabet.length)] : 'x';
+            }
+            int from = random.nextInt(array.length + 1);
+            int to = from + random.nextInt(array.length - from + 1);
+            assertScanners(scalar, vector, array, from, to, delimiterSets);
+        }
+    }
+
+    private static void assertScanners(CharScanner scalar, CharScanner vector, char[] array, int from, int to, char[][] delimiterSets) {
+        assertEquals(scalar.indexOfHighSurrogate(array, from, to), vector.indexOfHighSurrogate(array, from, to));
+        for (char[] delimiters : delimiterSets) {
+            assertEquals(scalar.indexOfAny(array, from, to, delimiters), vector.indexOfAny(array, from, to, delimiters));
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.github.zhitron.codepoint_loader;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的 CharScanner 实现，每次比较一整个向量寄存器宽度的字符，
+ * 不足一个向量的尾部数据交给默认实现处理。
+ *
+ * <p>该类只在使用 vector 配置编译时存在，由 CharScanner 在运行时通过反射加载。</p>
+ *
+ * @author zhitron
+ */
+final class VectorCharScanner extends CharScanner {
+    /**
+     * 当前平台上最宽的 short 向量。
+     */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    /**
+     * 代理字符的高 6 位掩码。
+     */
+    private static final short SURROGATE_MASK = (short) 0xFC00;
+
+    @Override
+    int indexOfHighSurrogate(char[] array, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            // 高代理字符的范围是 0xD800..0xDBFF，即高 6 位等于 0xD800
+            VectorMask<Short> mask = ShortVector.fromCharArray(SPECIES, array, i)
+                    .and(SURROGATE_MASK)
+                    .eq((short) Character.MIN_HIGH_SURROGATE);
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        return super.indexOfHighSurrogate(array, i, to);
+    }
+
+    @Override
+    int indexOfAny(char[] array, int from, int to, char[] delimiters) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector vector = ShortVector.fromCharArray(SPECIES, array, i);
+            VectorMask<Short> mask = vector.eq((short) delimiters[0]);
+            for (int k = 1; k < delimiters.length; k++) {
+                mask = mask.or(vector.eq((short) delimiters[k]));
+            }
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        return super.indexOfAny(array, i, to, delimiters);
+    }
+}